@@ -0,0 +1,288 @@
+package com.cliqshop.cart;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of cart states for the write-behind cart mode. Every
+ * mutation appends the whole resulting cart as one checksummed JSON line, so
+ * replay only needs the last record per user. Callers wait for
+ * {@link #awaitDurable(long)} before acknowledging a mutation; concurrent
+ * waiters share a single fsync.
+ *
+ * The log is split into numbered segments. The flusher rotates to a new
+ * segment, writes every dirty cart to the database, and then deletes the
+ * older segments, whose records are all in the database by then.
+ */
+public class CartJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartJournal.class);
+
+    private static final String SEGMENT_PREFIX = "cart-journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+
+    // Lock order: syncLock, then writeLock
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    // Bytes appended over the journal's lifetime; a record's ticket is the total after it
+    private long written;
+    private volatile long durable;
+
+    public CartJournal(Path directory, boolean fsync, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+            List<Long> existing = segments();
+            segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+            channel = open(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open cart journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Reads every record in segments older than the current one and returns
+     * the latest state per user. A torn record at the end of a segment (a
+     * crash mid-write) ends that segment; it was never acknowledged.
+     */
+    public Map<Long, CartState> replay() {
+        Map<Long, CartState> latest = new LinkedHashMap<>();
+        try {
+            for (Long number : segments()) {
+                if (number >= segment) {
+                    continue;
+                }
+                try (BufferedReader reader = Files.newBufferedReader(segmentPath(number), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        CartState state = decode(line);
+                        if (state == null) {
+                            logger.warn("Cart journal segment {} ends in an incomplete record; ignoring the rest", number);
+                            break;
+                        }
+                        latest.put(state.getUserId(), state);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay cart journal in " + directory, e);
+        }
+        return latest;
+    }
+
+    /**
+     * Appends the state and returns the ticket to pass to {@link #awaitDurable(long)}.
+     * Call with the state's monitor held so that records for one cart are in mutation order.
+     */
+    public long append(CartState state) {
+        byte[] record = encode(state);
+        synchronized (writeLock) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not append to cart journal", e);
+            }
+            written += record.length;
+            return written;
+        }
+    }
+
+    /**
+     * Blocks until the record with the given ticket is on disk. A caller that
+     * arrives while another is forcing the file waits for it, and usually
+     * finds its own record already covered.
+     */
+    public void awaitDurable(long ticket) {
+        if (!fsync || durable >= ticket) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durable >= ticket) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (writeLock) {
+                target = written;
+                current = channel;
+            }
+            force(current);
+            durable = target;
+        }
+    }
+
+    /**
+     * Starts a new segment and returns its number. Everything appended before
+     * the call is in older segments and is durable.
+     */
+    public long rotate() {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                force(channel);
+                durable = written;
+                try {
+                    channel.close();
+                    segment++;
+                    channel = open(segment);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not rotate cart journal", e);
+                }
+                return segment;
+            }
+        }
+    }
+
+    public void deleteSegmentsBefore(long number) {
+        try {
+            for (Long existing : segments()) {
+                if (existing < number) {
+                    Files.deleteIfExists(segmentPath(existing));
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete old cart journal segments: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                try {
+                    force(channel);
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close cart journal: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void force(FileChannel target) {
+        if (!fsync) {
+            return;
+        }
+        try {
+            target.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync cart journal", e);
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    // A record is "<crc32 hex> <json>\n"; the checksum covers the JSON bytes
+    private byte[] encode(CartState state) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("userId", state.getUserId());
+        node.put("cartId", state.getCartId());
+        ArrayNode items = node.putArray("items");
+        for (CartState.Line line : state.getLines()) {
+            ObjectNode item = items.addObject();
+            item.put("productId", line.getProductId());
+            item.put("cartItemId", line.getCartItemId());
+            item.put("quantity", line.getQuantity());
+            item.put("unitPrice", line.getUnitPrice().toPlainString());
+            item.put("productName", line.getProductName());
+            item.put("productImageUrl", line.getProductImageUrl());
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize cart journal record", e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        byte[] prefix = String.format("%08x ", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        byte[] record = new byte[prefix.length + json.length + 1];
+        System.arraycopy(prefix, 0, record, 0, prefix.length);
+        System.arraycopy(json, 0, record, prefix.length, json.length);
+        record[record.length - 1] = '\n';
+        return record;
+    }
+
+    private CartState decode(String line) {
+        if (line.length() < 10 || line.charAt(8) != ' ') {
+            return null;
+        }
+        byte[] json = line.substring(9).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        if (!String.format("%08x", crc.getValue()).equals(line.substring(0, 8))) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            CartState state = new CartState(node.get("userId").asLong(), longOrNull(node.get("cartId")), true);
+            for (JsonNode item : node.get("items")) {
+                state.restoreLine(new CartState.Line(item.get("productId").asLong(),
+                        longOrNull(item.get("cartItemId")), item.get("quantity").asInt(),
+                        new BigDecimal(item.get("unitPrice").asText()), textOrNull(item.get("productName")),
+                        textOrNull(item.get("productImageUrl"))));
+            }
+            return state;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Long longOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asLong();
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+}
@@ -0,0 +1,217 @@
+package com.cliqshop.cart;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The in-memory copy of one user's cart used by the write-behind cart mode.
+ * Lines carry the same price snapshot as {@link com.cliqshop.entity.CartItem},
+ * so the state can be priced, rendered and journaled without the database.
+ *
+ * Not thread-safe on its own: callers hold the state's monitor while reading
+ * or mutating it, and a store only evicts a state through {@link #tryEvict()}.
+ */
+public class CartState {
+
+    private final Long userId;
+    private Long cartId;
+    // Whether the user has a cart at all, persisted or created in memory
+    private boolean exists;
+    private final Map<Long, Line> lines = new LinkedHashMap<>();
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+    // Bumped on every mutation so a flush can tell whether it wrote the latest state
+    private long revision;
+    private boolean dirty;
+    private boolean evicted;
+
+    public CartState(Long userId, Long cartId, boolean exists) {
+        this.userId = userId;
+        this.cartId = cartId;
+        this.exists = exists;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public boolean exists() {
+        return exists;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    /**
+     * Returns copies of the lines, safe to use after the monitor is released.
+     */
+    public List<Line> getLines() {
+        List<Line> copies = new ArrayList<>(lines.size());
+        for (Line line : lines.values()) {
+            copies.add(line.copy());
+        }
+        return copies;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    // Mutators keep the running total current, as Cart does for the persisted cart
+
+    public void addLine(Long productId, BigDecimal unitPrice, String productName, String productImageUrl, int quantity) {
+        exists = true;
+        Line line = lines.get(productId);
+        if (line == null) {
+            line = new Line(productId, null, quantity, unitPrice, productName, productImageUrl);
+            lines.put(productId, line);
+            totalPrice = totalPrice.add(line.getLineTotal());
+        } else {
+            BigDecimal previous = line.getLineTotal();
+            line.unitPrice = unitPrice;
+            line.productName = productName;
+            line.productImageUrl = productImageUrl;
+            line.quantity += quantity;
+            totalPrice = totalPrice.add(line.getLineTotal()).subtract(previous);
+        }
+        changed();
+    }
+
+    public boolean updateQuantity(Long productId, int quantity) {
+        Line line = lines.get(productId);
+        if (line == null) {
+            return false;
+        }
+        BigDecimal previous = line.getLineTotal();
+        line.quantity = quantity;
+        totalPrice = totalPrice.add(line.getLineTotal()).subtract(previous);
+        changed();
+        return true;
+    }
+
+    public boolean removeLine(Long productId) {
+        Line line = lines.remove(productId);
+        if (line == null) {
+            return false;
+        }
+        totalPrice = totalPrice.subtract(line.getLineTotal());
+        changed();
+        return true;
+    }
+
+    public void clear() {
+        lines.clear();
+        totalPrice = BigDecimal.ZERO;
+        changed();
+    }
+
+    /**
+     * Restores a line as persisted or journaled, without treating it as a mutation.
+     */
+    public void restoreLine(Line line) {
+        exists = true;
+        lines.put(line.productId, line);
+        totalPrice = totalPrice.add(line.getLineTotal());
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Records that the state as of {@code flushedRevision} is in the database,
+     * along with the ids the database assigned. The state stays dirty if it
+     * has changed since.
+     */
+    public void flushed(long flushedRevision, Long cartId, Map<Long, Long> itemIds) {
+        this.cartId = cartId;
+        for (Map.Entry<Long, Long> entry : itemIds.entrySet()) {
+            Line line = lines.get(entry.getKey());
+            if (line != null) {
+                line.cartItemId = entry.getValue();
+            }
+        }
+        if (revision == flushedRevision) {
+            dirty = false;
+        }
+    }
+
+    public synchronized boolean tryEvict() {
+        if (dirty) {
+            return false;
+        }
+        evicted = true;
+        return true;
+    }
+
+    private void changed() {
+        revision++;
+        dirty = true;
+    }
+
+    public static class Line {
+        private final Long productId;
+        private Long cartItemId;
+        private int quantity;
+        private BigDecimal unitPrice;
+        private String productName;
+        private String productImageUrl;
+
+        public Line(Long productId, Long cartItemId, int quantity, BigDecimal unitPrice,
+                    String productName, String productImageUrl) {
+            this.productId = productId;
+            this.cartItemId = cartItemId;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.productName = productName;
+            this.productImageUrl = productImageUrl;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public Long getCartItemId() {
+            return cartItemId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public String getProductImageUrl() {
+            return productImageUrl;
+        }
+
+        public BigDecimal getLineTotal() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        Line copy() {
+            return new Line(productId, cartItemId, quantity, unitPrice, productName, productImageUrl);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.cliqshop.cart;
+
+/**
+ * Holds the resident carts for the write-behind cart mode. Implementations
+ * decide how many carts stay in memory, but must never drop a dirty cart:
+ * a state may only be discarded after its {@link CartState#tryEvict()} has
+ * returned {@code true}.
+ */
+public interface CartStore {
+
+    /**
+     * Returns the resident state for the user, or {@code null}.
+     */
+    CartState get(Long userId);
+
+    /**
+     * Stores the state unless one is already resident, and returns the
+     * resident one.
+     */
+    CartState putIfAbsent(CartState state);
+
+    void remove(Long userId);
+
+    int size();
+}
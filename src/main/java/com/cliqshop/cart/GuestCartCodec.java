@@ -0,0 +1,162 @@
+package com.cliqshop.cart;
+
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.security.JwtUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes a guest cart (product id to quantity, in insertion order) as a
+ * compact, signed, URL-safe token that the client keeps, so guests need no
+ * server-side state. Prices are never in the token; they are looked up
+ * whenever the cart is shown.
+ *
+ * Layout before Base64: a format byte, the issue time in epoch seconds, the
+ * line count and each line's product id and quantity, all as unsigned
+ * varints, followed by the first 16 bytes of an HMAC-SHA256 over the rest.
+ * A 10-line cart is about 60 characters.
+ */
+@Component
+public class GuestCartCodec {
+
+    public static final int MAX_LINES = 100;
+    public static final int MAX_QUANTITY = 999;
+
+    private static final int FORMAT = 1;
+    private static final int MAC_LENGTH = 16;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Value("${cart.guest.ttl:30d}")
+    private Duration ttl;
+
+    private SecretKey key;
+
+    @PostConstruct
+    public void init() {
+        this.key = jwtUtils.deriveKey("guest-cart");
+    }
+
+    public String encode(Map<Long, Integer> lines) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + lines.size() * 6);
+        out.write(FORMAT);
+        writeVarint(out, Instant.now().getEpochSecond());
+        writeVarint(out, lines.size());
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            writeVarint(out, line.getKey());
+            writeVarint(out, line.getValue());
+        }
+        byte[] payload = out.toByteArray();
+        byte[] token = Arrays.copyOf(payload, payload.length + MAC_LENGTH);
+        System.arraycopy(sign(payload), 0, token, payload.length, MAC_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * A decoded token. The id is the token's signature, which no other token
+     * shares; it is {@code null} for a missing or expired token.
+     */
+    public record GuestCart(String id, Instant expiresAt, Map<Long, Integer> lines) {
+    }
+
+    /**
+     * Returns the token's lines. A missing or expired token is an empty cart;
+     * a token that was tampered with or is not a guest cart is rejected.
+     */
+    public Map<Long, Integer> decode(String token) {
+        return read(token).lines();
+    }
+
+    /**
+     * Like {@link #decode}, but also returns the token's id and expiry, for
+     * callers that must use a token only once.
+     */
+    public GuestCart read(String token) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        if (token == null || token.isBlank()) {
+            return new GuestCart(null, null, lines);
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (bytes.length <= MAC_LENGTH) {
+            throw invalid();
+        }
+        byte[] payload = Arrays.copyOf(bytes, bytes.length - MAC_LENGTH);
+        byte[] mac = Arrays.copyOfRange(bytes, payload.length, bytes.length);
+        if (!MessageDigest.isEqual(mac, Arrays.copyOf(sign(payload), MAC_LENGTH))) {
+            throw invalid();
+        }
+
+        // The signature checked out, so the payload is one we wrote
+        int[] position = {0};
+        if (payload[position[0]++] != FORMAT) {
+            throw invalid();
+        }
+        Instant expiresAt = Instant.ofEpochSecond(readVarint(payload, position)).plus(ttl);
+        if (expiresAt.isBefore(Instant.now())) {
+            return new GuestCart(null, null, lines);
+        }
+        long count = readVarint(payload, position);
+        for (long i = 0; i < count; i++) {
+            lines.put(readVarint(payload, position), (int) readVarint(payload, position));
+        }
+        return new GuestCart(HexFormat.of().formatHex(mac), expiresAt, lines);
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign guest cart", e);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= bytes.length) {
+                throw invalid();
+            }
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw invalid();
+    }
+
+    private static InvalidRequestException invalid() {
+        return new InvalidRequestException("Invalid guest cart token");
+    }
+}
@@ -0,0 +1,31 @@
+package com.cliqshop.cart;
+
+import java.time.LocalDateTime;
+
+/**
+ * A cart the abandoned-cart sweeper may delete, with the key it pages by.
+ */
+public class IdleCart {
+
+    private final Long cartId;
+    private final Long userId;
+    private final LocalDateTime updatedAt;
+
+    public IdleCart(Long cartId, Long userId, LocalDateTime updatedAt) {
+        this.cartId = cartId;
+        this.userId = userId;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
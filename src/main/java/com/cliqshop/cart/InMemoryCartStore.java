@@ -0,0 +1,65 @@
+package com.cliqshop.cart;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The default {@link CartStore}: a heap-resident LRU map bounded by cart count.
+ * Once full, each insert evicts the least recently used clean carts. Dirty
+ * carts are skipped, so the bound is soft by at most the carts changed since
+ * the last flush.
+ */
+public class InMemoryCartStore implements CartStore {
+
+    // Caps the work one insert spends looking past dirty carts for a clean one
+    private static final int MAX_EVICTION_SCAN = 64;
+
+    private final int maxCarts;
+    private final LinkedHashMap<Long, CartState> carts = new LinkedHashMap<>(16, 0.75f, true);
+
+    public InMemoryCartStore(int maxCarts) {
+        this.maxCarts = maxCarts;
+    }
+
+    @Override
+    public synchronized CartState get(Long userId) {
+        return carts.get(userId);
+    }
+
+    @Override
+    public synchronized CartState putIfAbsent(CartState state) {
+        CartState resident = carts.get(state.getUserId());
+        if (resident != null) {
+            return resident;
+        }
+        carts.put(state.getUserId(), state);
+        evictIfNeeded(state);
+        return state;
+    }
+
+    @Override
+    public synchronized void remove(Long userId) {
+        carts.remove(userId);
+    }
+
+    @Override
+    public synchronized int size() {
+        return carts.size();
+    }
+
+    // Never evicts the state just inserted, which the caller is about to use
+    private void evictIfNeeded(CartState inserted) {
+        int scanned = 0;
+        Iterator<Map.Entry<Long, CartState>> eldest = carts.entrySet().iterator();
+        while (carts.size() > maxCarts && scanned++ < MAX_EVICTION_SCAN && eldest.hasNext()) {
+            CartState candidate = eldest.next().getValue();
+            if (candidate == inserted) {
+                break;
+            }
+            if (candidate.tryEvict()) {
+                eldest.remove();
+            }
+        }
+    }
+}
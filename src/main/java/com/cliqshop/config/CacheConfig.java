@@ -0,0 +1,93 @@
+package com.cliqshop.config;
+
+import com.cliqshop.entity.Product;
+import com.cliqshop.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catalog read caches. Caffeine evicts with W-TinyLFU once a cache reaches its
+ * size bound, so one-off lookups cannot push out the hot products. Each cache
+ * has its own TTL as a backstop; normal invalidation is event driven (see
+ * {@link com.cliqshop.service.CatalogCacheInvalidator}).
+ *
+ * The product cache is a loading cache: concurrent misses for one id share a
+ * single database load, and entries older than the refresh interval are served
+ * stale while one background reload replaces them.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String CATEGORIES = "categories";
+
+    @Value("${cache.products.max-size:50000}")
+    private long productsMaxSize;
+
+    @Value("${cache.products.ttl:10m}")
+    private Duration productsTtl;
+
+    @Value("${cache.products.refresh-after:30s}")
+    private Duration productsRefreshAfter;
+
+    @Value("${cache.categories.ttl:30m}")
+    private Duration categoriesTtl;
+
+    @Bean
+    public LoadingCache<Long, Product> productCache(ProductRepository productRepository) {
+        return Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .expireAfterWrite(productsTtl)
+                .refreshAfterWrite(productsRefreshAfter)
+                .recordStats()
+                .build(new CacheLoader<Long, Product>() {
+                    @Override
+                    public Product load(Long id) {
+                        return productRepository.findById(id).orElse(null);
+                    }
+
+                    // getAll loads every miss with one query; unknown ids are left out
+                    @Override
+                    public Map<Long, Product> loadAll(Set<? extends Long> ids) {
+                        Map<Long, Product> products = new HashMap<>();
+                        for (Product product : productRepository.findByProductIdIn(new ArrayList<>(ids))) {
+                            products.put(product.getProductId(), product);
+                        }
+                        return products;
+                    }
+                });
+    }
+
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheManager cacheManager(LoadingCache<Long, Product> productCache) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Only the caches registered here exist; an unknown name fails fast
+        cacheManager.setCacheNames(Collections.emptyList());
+        cacheManager.setAllowNullValues(false);
+        // Registered so that eviction and statistics go through the same manager
+        cacheManager.registerCustomCache(PRODUCTS, (Cache<Object, Object>) (Cache<?, ?>) productCache);
+        cacheManager.registerCustomCache(CATEGORIES, Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(categoriesTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,43 @@
+package com.cliqshop.config;
+
+import com.cliqshop.cart.CartJournal;
+import com.cliqshop.cart.CartStore;
+import com.cliqshop.cart.InMemoryCartStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Infrastructure for the write-behind cart mode (see
+ * {@link com.cliqshop.service.WriteBehindCartService}). The cart store is only
+ * a default: declaring another {@link CartStore} bean replaces it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+public class CartWriteBehindConfig {
+
+    @Value("${cart.write-behind.max-carts:100000}")
+    private int maxCarts;
+
+    @Value("${cart.write-behind.journal-dir:./data/cart-journal}")
+    private Path journalDir;
+
+    @Value("${cart.write-behind.fsync:true}")
+    private boolean fsync;
+
+    @Bean
+    @ConditionalOnMissingBean(CartStore.class)
+    public CartStore cartStore() {
+        return new InMemoryCartStore(maxCarts);
+    }
+
+    @Bean
+    public CartJournal cartJournal(ObjectMapper objectMapper) {
+        return new CartJournal(journalDir, fsync, objectMapper);
+    }
+}
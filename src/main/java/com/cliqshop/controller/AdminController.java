@@ -1,19 +1,36 @@
 package com.cliqshop.controller;
 
+import com.cliqshop.dto.AdminOrderSummaryDto;
+import com.cliqshop.dto.CatalogFileFormat;
 import com.cliqshop.dto.CategoryDto;
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.OrderSearchCriteria;
+import com.cliqshop.dto.OrderSearchSort;
 import com.cliqshop.dto.ProductDto;
+import com.cliqshop.dto.ProductImportReport;
 import com.cliqshop.entity.Category;
 import com.cliqshop.entity.Inventory;
 import com.cliqshop.entity.Order;
 import com.cliqshop.entity.Product;
 import com.cliqshop.entity.User;
 import com.cliqshop.service.*;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -35,6 +52,27 @@ public class AdminController {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private AbandonedCartSweeper abandonedCartSweeper;
+
+    @Autowired
+    private OrderPipeline orderPipeline;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private OrderSearchService orderSearchService;
+
     // Dashboard Endpoints
     @GetMapping("/dashboard/stats")
     public ResponseEntity<?> getDashboardStats() {
@@ -43,7 +81,7 @@ public class AdminController {
                 public final long totalProducts = productService.getAllProducts().size();
                 public final long totalUsers = userService.getTotalUsers();
                 public final long totalCategories = categoryService.getAllCategories().size();
-                public final long totalOrders = orderService.getAllOrders().size();
+                public final long totalOrders = orderService.countOrders();
                 public final long lowStockItems = inventoryService.getLowStockItems().size();
             }
         );
@@ -77,6 +115,26 @@ public class AdminController {
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
+    // Marketplace feeds: the whole catalog, streamed row by row as ndjson (default) or csv
+    @GetMapping("/products/export")
+    public void exportProducts(@RequestParam(required = false) String format,
+                               HttpServletResponse response) throws IOException {
+        CatalogFileFormat fileFormat = CatalogFileFormat.fromParam(format);
+        response.setContentType(fileFormat.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("products." + fileFormat.name().toLowerCase())
+                .build()
+                .toString());
+        productExportService.export(fileFormat, response.getOutputStream());
+    }
+
+    // Supplier catalogs: text/csv with a header row, or one JSON object per line
+    @PostMapping(value = "/products/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ProductImportReport> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                              InputStream body) throws IOException {
+        return ResponseEntity.ok(productImportService.importProducts(body, CatalogFileFormat.fromContentType(contentType)));
+    }
+
     @PostMapping("/products")
     public ResponseEntity<Product> createProduct(@RequestBody ProductDto productDto) {
         return ResponseEntity.ok(productService.createProduct(productDto));
@@ -126,6 +184,29 @@ public class AdminController {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    // Filter on status, paymentStatus, from/to (ISO date-times, to exclusive), userId and
+    // minTotal/maxTotal; pass nextCursor back with the same filters and sort for the next page
+    @GetMapping("/orders/search")
+    public ResponseEntity<CursorPage<AdminOrderSummaryDto>> searchOrders(OrderSearchCriteria criteria,
+                                                                         @RequestParam(required = false) String sort,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(orderSearchService.search(criteria, OrderSearchSort.fromParam(sort), cursor, size));
+    }
+
+    // Every order matching the same filters, streamed row by row as csv
+    @GetMapping("/orders/export")
+    public void exportOrders(OrderSearchCriteria criteria, @RequestParam(required = false) String sort,
+                             HttpServletResponse response) throws IOException {
+        OrderSearchSort orderSort = OrderSearchSort.fromParam(sort);
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("orders.csv")
+                .build()
+                .toString());
+        orderSearchService.exportCsv(criteria, orderSort, response.getOutputStream());
+    }
+
     @GetMapping("/orders/{id}")
     public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
         return ResponseEntity.ok(orderService.getOrderById(id));
@@ -181,4 +262,41 @@ public class AdminController {
         inventoryService.deleteInventory(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    // Cache Monitoring
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            CaffeineCache cache = (CaffeineCache) cacheManager.getCache(name);
+            CacheStats stats = cache.getNativeCache().stats();
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("size", cache.getNativeCache().estimatedSize());
+            cacheStats.put("hitCount", stats.hitCount());
+            cacheStats.put("missCount", stats.missCount());
+            cacheStats.put("hitRate", stats.hitRate());
+            cacheStats.put("evictionCount", stats.evictionCount());
+            cacheStats.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+            response.put(name, cacheStats);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    // Abandoned-cart sweeper counters since startup
+    @GetMapping("/carts/sweeper/stats")
+    public ResponseEntity<Map<String, Object>> getCartSweeperStats() {
+        return ResponseEntity.ok(abandonedCartSweeper.getStats());
+    }
+
+    // Queue depth, throughput and latency of each order pipeline stage since startup
+    @GetMapping("/orders/pipeline/stats")
+    public ResponseEntity<Map<String, Object>> getOrderPipelineStats() {
+        return ResponseEntity.ok(orderPipeline.getStats());
+    }
+
+    // Pending and abandoned outbox events, and how far behind the relay is running
+    @GetMapping("/orders/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOrderOutboxStats() {
+        return ResponseEntity.ok(orderOutbox.getStats());
+    }
+}
@@ -5,7 +5,10 @@ import com.cliqshop.dto.RegisterRequest;
 import com.cliqshop.entity.User;
 import com.cliqshop.entity.User.UserRole;
 import com.cliqshop.security.JwtUtils;
+import com.cliqshop.service.GuestCartService;
 import com.cliqshop.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +27,8 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private AuthenticationManager authenticationManager;
 
@@ -33,6 +38,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private GuestCartService guestCartService;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
         try {
@@ -54,6 +62,15 @@ public class AuthController {
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             String jwt = jwtUtils.generateToken(userDetails.getUsername());
 
+            if (loginRequest.getGuestCartToken() != null) {
+                try {
+                    guestCartService.mergeInto(user.getUserId(), loginRequest.getGuestCartToken());
+                } catch (RuntimeException e) {
+                    // A cart that cannot be merged must not stop the login
+                    logger.warn("Could not merge guest cart for user {}: {}", user.getUserId(), e.getMessage());
+                }
+            }
+
             Map<String, Object> response = new HashMap<>();
             response.put("token", jwt);
             response.put("userId", user.getUserId());
@@ -1,7 +1,11 @@
 package com.cliqshop.controller;
 
+import com.cliqshop.dto.CartBatchRequest;
 import com.cliqshop.dto.CartDto;
+import com.cliqshop.dto.GuestCartDto;
+import com.cliqshop.dto.GuestCartRequest;
 import com.cliqshop.service.CartService;
+import com.cliqshop.service.GuestCartService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,6 +17,16 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private GuestCartService guestCartService;
+
+    // Prices a guest cart and applies any operations to it, returning the new token
+    @PostMapping("/guest")
+    public ResponseEntity<GuestCartDto> updateGuestCart(@RequestBody GuestCartRequest request) {
+        GuestCartDto cart = guestCartService.apply(request.getToken(), request.getOperations());
+        return ResponseEntity.ok(cart);
+    }
+
     @GetMapping("/{userId}")
     public ResponseEntity<CartDto> getCart(@PathVariable Long userId) {
         CartDto cart = cartService.getCartByUserId(userId);
@@ -45,6 +59,22 @@ public class CartController {
         return ResponseEntity.ok(cart);
     }
 
+    @PostMapping("/{userId}/batch")
+    public ResponseEntity<CartDto> applyBatch(
+            @PathVariable Long userId,
+            @RequestBody CartBatchRequest request) {
+        CartDto cart = cartService.applyBatch(userId, request.getOperations());
+        return ResponseEntity.ok(cart);
+    }
+
+    @PostMapping("/{userId}/merge")
+    public ResponseEntity<CartDto> mergeGuestCart(
+            @PathVariable Long userId,
+            @RequestBody GuestCartRequest request) {
+        CartDto cart = guestCartService.mergeInto(userId, request.getToken());
+        return cart == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(cart);
+    }
+
     @DeleteMapping("/{userId}/clear")
     public ResponseEntity<Void> clearCart(@PathVariable Long userId) {
         cartService.clearCart(userId);
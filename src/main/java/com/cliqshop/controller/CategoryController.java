@@ -2,10 +2,12 @@ package com.cliqshop.controller;
 
 import com.cliqshop.dto.CategoryDto;
 import com.cliqshop.entity.Category;
+import com.cliqshop.service.CatalogVersions;
 import com.cliqshop.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -16,6 +18,9 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
     // Admin endpoints
     @PostMapping("/admin")
     public ResponseEntity<Category> createCategory(@RequestBody CategoryDto categoryDto) {
@@ -37,14 +42,22 @@ public class CategoryController {
 
     // Public endpoints
     @GetMapping
-    public ResponseEntity<List<Category>> getAllCategories() {
+    public ResponseEntity<List<Category>> getAllCategories(WebRequest request) {
+        String etag = catalogVersions.catalogTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Category> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().eTag(etag).body(categories);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable Long id) {
+    public ResponseEntity<Category> getCategoryById(@PathVariable Long id, WebRequest request) {
+        String etag = catalogVersions.catalogTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         Category category = categoryService.getCategoryById(id);
-        return ResponseEntity.ok(category);
+        return ResponseEntity.ok().eTag(etag).body(category);
     }
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.cliqshop.controller;
 
+import com.cliqshop.dto.CursorPage;
 import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.dto.OrderSummaryDto;
 import com.cliqshop.entity.Order;
 import com.cliqshop.entity.Order.OrderStatus;
+import com.cliqshop.service.IdempotencyService;
+import com.cliqshop.service.OrderPipeline;
 import com.cliqshop.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -17,6 +22,12 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderPipeline orderPipeline;
+
     // Admin endpoints
     @GetMapping("/admin")
     public ResponseEntity<List<Order>> getAllOrders() {
@@ -30,9 +41,13 @@ public class OrderController {
     }
 
     // Customer endpoints
+    // Placed on the order pipeline, which frees the request thread until the order has committed.
+    // A retry with the same Idempotency-Key gets the first response back instead of a second order
     @PostMapping
-    public ResponseEntity<Order> placeOrder(@RequestBody OrderRequest orderRequest) {
-        return ResponseEntity.ok(orderService.placeOrder(orderRequest));
+    public CompletableFuture<ResponseEntity<?>> placeOrder(@RequestBody OrderRequest orderRequest,
+                                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return orderPipeline.place(() -> idempotencyService.execute("order:" + orderRequest.getUserId(),
+                idempotencyKey, orderRequest, () -> ResponseEntity.ok(orderService.placeOrder(orderRequest))));
     }
 
     @GetMapping("/user/{userId}")
@@ -40,6 +55,14 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrdersByUserId(userId));
     }
 
+    // Order history a page at a time, newest first; pass nextCursor back to get the following page
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<CursorPage<OrderSummaryDto>> getOrderHistory(@PathVariable Long userId,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(orderService.getOrderHistory(userId, cursor, size));
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<Order> getOrderDetails(@PathVariable Long orderId) {
         return ResponseEntity.ok(orderService.getOrderById(orderId));
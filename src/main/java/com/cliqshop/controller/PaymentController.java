@@ -4,6 +4,7 @@ import com.cliqshop.dto.PaymentIntentRequest;
 import com.cliqshop.dto.PaymentResponse;
 import com.cliqshop.entity.Order;
 import com.cliqshop.payment.PaymentService;
+import com.cliqshop.service.IdempotencyService;
 import com.cliqshop.service.OrderService;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Event;
@@ -33,6 +34,9 @@ public class PaymentController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @PostMapping("/create-payment-intent")
     public ResponseEntity<?> createPaymentIntent(@RequestBody PaymentIntentRequest request) {
         try {
@@ -49,7 +53,14 @@ public class PaymentController {
      * Create a Stripe Checkout Session for redirecting to Stripe's hosted payment page
      */
     @PostMapping("/create-checkout-session")
-    public ResponseEntity<?> createCheckoutSession(@RequestBody CheckoutSessionRequest request) {
+    public ResponseEntity<?> createCheckoutSession(@RequestBody CheckoutSessionRequest request,
+                                                   @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        // A retry with the same Idempotency-Key gets the first session back instead of a second one
+        return idempotencyService.execute("checkout:" + request.getOrderId(), idempotencyKey, request,
+                () -> checkoutSession(request, idempotencyKey));
+    }
+
+    private ResponseEntity<?> checkoutSession(CheckoutSessionRequest request, String idempotencyKey) {
         try {
             logger.info("Creating checkout session for order: {}", request.getOrderId());
             
@@ -107,7 +118,7 @@ public class PaymentController {
             }
             
             // Create the session
-            Session session = paymentService.createCheckoutSession(paramsBuilder.build());
+            Session session = paymentService.createCheckoutSession(paramsBuilder.build(), idempotencyKey);
             
             // Update the order with the payment session id
             order.setPaymentIntentId(session.getId());
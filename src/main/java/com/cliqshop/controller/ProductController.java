@@ -1,13 +1,24 @@
 package com.cliqshop.controller;
 
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.FacetedProductPage;
 import com.cliqshop.dto.ProductDto;
+import com.cliqshop.dto.ProductSort;
+import com.cliqshop.dto.ProductSummaryDto;
+import com.cliqshop.dto.SuggestionDto;
 import com.cliqshop.entity.Product;
+import com.cliqshop.service.CatalogVersions;
+import com.cliqshop.service.CategorySnapshotService;
 import com.cliqshop.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -16,6 +27,12 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private CategorySnapshotService categorySnapshotService;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
     // Admin endpoints
     @PostMapping("/admin")
     public ResponseEntity<Product> createProduct(@RequestBody ProductDto productDto) {
@@ -37,26 +54,92 @@ public class ProductController {
 
     // Public endpoints
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<Product>> getAllProducts(WebRequest request) {
+        String etag = catalogVersions.catalogTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().eTag(etag).body(products);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<ProductSummaryDto>> getProductPage(
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int size,
+            WebRequest request) {
+        String etag = catalogVersions.listingsTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        CursorPage<ProductSummaryDto> page = productService.getProductPage(ProductSort.fromParam(sort), cursor, size);
+        return ResponseEntity.ok().eTag(etag).body(page);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        String etag = catalogVersions.productTag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         Product product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        return ResponseEntity.ok().eTag(etag).body(product);
     }
 
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Long categoryId) {
-        List<Product> products = productService.getProductsByCategory(categoryId);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> getProductsByCategory(@PathVariable Long categoryId, WebRequest request) {
+        CategorySnapshotService.Snapshot snapshot = categorySnapshotService.getSnapshot(categoryId);
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.getEtag())
+                .body(snapshot.getBody());
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProductsByName(@RequestParam String name) {
-        List<Product> products = productService.searchProductsByName(name);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<ProductSummaryDto>> searchProductsByName(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest request) {
+        String etag = catalogVersions.listingsTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<ProductSummaryDto> products = productService.searchProducts(name, limit);
+        return ResponseEntity.ok().eTag(etag).body(products);
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit,
+            WebRequest request) {
+        String etag = catalogVersions.listingsTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<SuggestionDto> suggestions = productService.suggest(q, limit);
+        return ResponseEntity.ok().eTag(etag).body(suggestions);
+    }
+
+    // Inventory counts towards the in-stock facet, so this follows the full catalog tag
+    @GetMapping("/filter")
+    public ResponseEntity<FacetedProductPage> filterProducts(
+            @RequestParam(required = false) Set<Long> categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int limit,
+            WebRequest request) {
+        String etag = catalogVersions.catalogTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        FacetedProductPage page = productService.filterProducts(categoryId, minPrice, maxPrice, inStock, cursor, limit);
+        return ResponseEntity.ok().eTag(etag).body(page);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package com.cliqshop.dto;
+
+import com.cliqshop.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat read projection of an order for the admin order search and export.
+ * Built by a criteria constructor expression, so no order graph is loaded.
+ */
+public class AdminOrderSummaryDto {
+    private Long orderId;
+    private LocalDateTime orderDate;
+    private Order.OrderStatus status;
+    private Order.PaymentStatus paymentStatus;
+    private BigDecimal totalPrice;
+    private String paymentMethod;
+    private String shippingMethod;
+    private Long userId;
+    private String customerName;
+    private String customerEmail;
+
+    // Constructors
+    public AdminOrderSummaryDto() {
+    }
+
+    public AdminOrderSummaryDto(Long orderId, LocalDateTime orderDate, Order.OrderStatus status,
+                                Order.PaymentStatus paymentStatus, BigDecimal totalPrice, String paymentMethod,
+                                String shippingMethod, Long userId, String customerName, String customerEmail) {
+        this.orderId = orderId;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.paymentStatus = paymentStatus;
+        this.totalPrice = totalPrice;
+        this.paymentMethod = paymentMethod;
+        this.shippingMethod = shippingMethod;
+        this.userId = userId;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+    }
+
+    // Getters and Setters
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public void setOrderDate(LocalDateTime orderDate) {
+        this.orderDate = orderDate;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+
+    public Order.PaymentStatus getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(Order.PaymentStatus paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    public String getShippingMethod() {
+        return shippingMethod;
+    }
+
+    public void setShippingMethod(String shippingMethod) {
+        this.shippingMethod = shippingMethod;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    public void setCustomerEmail(String customerEmail) {
+        this.customerEmail = customerEmail;
+    }
+}
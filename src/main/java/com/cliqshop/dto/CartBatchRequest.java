@@ -0,0 +1,67 @@
+package com.cliqshop.dto;
+
+import java.util.List;
+
+/**
+ * An ordered list of cart changes applied together by {@code POST /api/cart/{userId}/batch},
+ * e.g. when merging a guest cart or reordering a past order.
+ */
+public class CartBatchRequest {
+    private List<CartOperation> operations;
+
+    // Getters and Setters
+    public List<CartOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CartOperation> operations) {
+        this.operations = operations;
+    }
+
+    public enum OperationType {
+        ADD,
+        UPDATE,
+        REMOVE
+    }
+
+    public static class CartOperation {
+        private OperationType type;
+        private Long productId;
+        // Ignored for REMOVE
+        private int quantity;
+
+        public CartOperation() {
+        }
+
+        public CartOperation(OperationType type, Long productId, int quantity) {
+            this.type = type;
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+
+        // Getters and Setters
+        public OperationType getType() {
+            return type;
+        }
+
+        public void setType(OperationType type) {
+            this.type = type;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
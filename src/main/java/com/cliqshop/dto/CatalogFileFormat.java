@@ -0,0 +1,38 @@
+package com.cliqshop.dto;
+
+import com.cliqshop.exception.InvalidRequestException;
+import org.springframework.http.MediaType;
+
+/**
+ * Line-oriented formats for bulk catalog import and export. Both carry the
+ * same columns, so an export can be fed straight back into an import.
+ */
+public enum CatalogFileFormat {
+    CSV(new MediaType("text", "csv")),
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    CatalogFileFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public static CatalogFileFormat fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return NDJSON;
+        }
+        try {
+            return CatalogFileFormat.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unsupported format: " + value);
+        }
+    }
+
+    public static CatalogFileFormat fromContentType(String contentType) {
+        return NDJSON.mediaType.isCompatibleWith(MediaType.parseMediaType(contentType)) ? NDJSON : CSV;
+    }
+}
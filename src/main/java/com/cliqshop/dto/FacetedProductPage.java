@@ -0,0 +1,162 @@
+package com.cliqshop.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One page of a faceted product filter, with counts for every facet value.
+ * Each facet is counted with the other facets' filters applied but not its
+ * own, so the counts say how many results picking that value would give.
+ */
+public class FacetedProductPage {
+    private List<ProductSummaryDto> items;
+    private String nextCursor;
+    private int total;
+    private List<CategoryCount> categories;
+    private List<PriceRangeCount> priceRanges;
+    private int inStock;
+
+    // Constructors
+    public FacetedProductPage() {
+    }
+
+    public FacetedProductPage(List<ProductSummaryDto> items, String nextCursor, int total,
+                              List<CategoryCount> categories, List<PriceRangeCount> priceRanges, int inStock) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.total = total;
+        this.categories = categories;
+        this.priceRanges = priceRanges;
+        this.inStock = inStock;
+    }
+
+    // Getters and Setters
+    public List<ProductSummaryDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ProductSummaryDto> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public List<CategoryCount> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryCount> categories) {
+        this.categories = categories;
+    }
+
+    public List<PriceRangeCount> getPriceRanges() {
+        return priceRanges;
+    }
+
+    public void setPriceRanges(List<PriceRangeCount> priceRanges) {
+        this.priceRanges = priceRanges;
+    }
+
+    public int getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(int inStock) {
+        this.inStock = inStock;
+    }
+
+    public static class CategoryCount {
+        private Long categoryId;
+        private String name;
+        private int count;
+
+        public CategoryCount() {
+        }
+
+        public CategoryCount(Long categoryId, String name, int count) {
+            this.categoryId = categoryId;
+            this.name = name;
+            this.count = count;
+        }
+
+        public Long getCategoryId() {
+            return categoryId;
+        }
+
+        public void setCategoryId(Long categoryId) {
+            this.categoryId = categoryId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+
+    /**
+     * Prices in {@code [min, max)}; {@code max} is {@code null} for the open-ended top range.
+     */
+    public static class PriceRangeCount {
+        private BigDecimal min;
+        private BigDecimal max;
+        private int count;
+
+        public PriceRangeCount() {
+        }
+
+        public PriceRangeCount(BigDecimal min, BigDecimal max, int count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() {
+            return min;
+        }
+
+        public void setMin(BigDecimal min) {
+            this.min = min;
+        }
+
+        public BigDecimal getMax() {
+            return max;
+        }
+
+        public void setMax(BigDecimal max) {
+            this.max = max;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cliqshop.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A priced guest cart. The client sends {@code token} back with its next
+ * change, and with its login to merge the cart into the user's cart.
+ */
+public class GuestCartDto {
+    private String token;
+    private BigDecimal totalPrice;
+    private List<CartItemDto> items;
+
+    // Getters and Setters
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public List<CartItemDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<CartItemDto> items) {
+        this.items = items;
+    }
+}
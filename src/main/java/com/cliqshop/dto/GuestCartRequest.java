@@ -0,0 +1,29 @@
+package com.cliqshop.dto;
+
+import java.util.List;
+
+/**
+ * A guest cart token with the changes to apply to it. No operations just
+ * prices the cart, e.g. for the cart page.
+ */
+public class GuestCartRequest {
+    private String token;
+    private List<CartBatchRequest.CartOperation> operations;
+
+    // Getters and Setters
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public List<CartBatchRequest.CartOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CartBatchRequest.CartOperation> operations) {
+        this.operations = operations;
+    }
+}
@@ -3,6 +3,8 @@ package com.cliqshop.dto;
 public class LoginRequest {
     private String username;
     private String password;
+    // Optional guest cart to merge into the user's cart
+    private String guestCartToken;
 
     // Constructors
     public 	LoginRequest() {
@@ -29,4 +31,12 @@ public class LoginRequest {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public String getGuestCartToken() {
+        return guestCartToken;
+    }
+
+    public void setGuestCartToken(String guestCartToken) {
+        this.guestCartToken = guestCartToken;
+    }
 }
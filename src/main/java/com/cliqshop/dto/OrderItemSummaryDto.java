@@ -0,0 +1,94 @@
+package com.cliqshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of an order in the order history, with just enough of the product
+ * to show it. Built by a JPQL constructor expression for a whole page of
+ * orders at once.
+ */
+public class OrderItemSummaryDto {
+    private Long orderId;
+    private Long orderItemId;
+    private Long productId;
+    private String productName;
+    private String imageUrl;
+    private Integer quantity;
+    private BigDecimal price;
+
+    // Constructors
+    public OrderItemSummaryDto() {
+    }
+
+    public OrderItemSummaryDto(Long orderId, Long orderItemId, Long productId, String productName, String imageUrl,
+                               Integer quantity, BigDecimal price) {
+        this.orderId = orderId;
+        this.orderItemId = orderItemId;
+        this.productId = productId;
+        this.productName = productName;
+        this.imageUrl = imageUrl;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    // Getters and Setters
+    // Only used to group lines under their order; the enclosing summary already carries it
+    @JsonIgnore
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getOrderItemId() {
+        return orderItemId;
+    }
+
+    public void setOrderItemId(Long orderItemId) {
+        this.orderItemId = orderItemId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+}
@@ -0,0 +1,30 @@
+package com.cliqshop.dto;
+
+import com.cliqshop.exception.InvalidRequestException;
+
+/**
+ * Supported orderings for the admin order search. Every ordering is broken by
+ * {@code orderId} so that keyset pages stay stable under concurrent inserts.
+ */
+public enum OrderSearchSort {
+    DATE_DESC, DATE_ASC, TOTAL_DESC, TOTAL_ASC;
+
+    public static OrderSearchSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return DATE_DESC;
+        }
+        try {
+            return OrderSearchSort.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unsupported sort: " + value);
+        }
+    }
+
+    public boolean isDescending() {
+        return this == DATE_DESC || this == TOTAL_DESC;
+    }
+
+    public boolean isByTotal() {
+        return this == TOTAL_DESC || this == TOTAL_ASC;
+    }
+}
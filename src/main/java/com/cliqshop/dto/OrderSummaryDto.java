@@ -0,0 +1,84 @@
+package com.cliqshop.dto;
+
+import com.cliqshop.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flat read projection of an order for the order history. The order columns
+ * come from a JPQL constructor expression that idx_orders_user_history
+ * covers; the lines are filled in from one query for the whole page.
+ */
+public class OrderSummaryDto {
+    private Long orderId;
+    private LocalDateTime orderDate;
+    private Order.OrderStatus status;
+    private Order.PaymentStatus paymentStatus;
+    private BigDecimal totalPrice;
+    private List<OrderItemSummaryDto> items = new ArrayList<>();
+
+    // Constructors
+    public OrderSummaryDto() {
+    }
+
+    public OrderSummaryDto(Long orderId, LocalDateTime orderDate, Order.OrderStatus status,
+                           Order.PaymentStatus paymentStatus, BigDecimal totalPrice) {
+        this.orderId = orderId;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.paymentStatus = paymentStatus;
+        this.totalPrice = totalPrice;
+    }
+
+    // Getters and Setters
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public void setOrderDate(LocalDateTime orderDate) {
+        this.orderDate = orderDate;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+
+    public Order.PaymentStatus getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(Order.PaymentStatus paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public List<OrderItemSummaryDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderItemSummaryDto> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,22 @@
+package com.cliqshop.dto;
+
+import com.cliqshop.exception.InvalidRequestException;
+
+/**
+ * Supported orderings for the keyset-paginated product listing. Every ordering
+ * is broken by {@code productId} so that pages stay stable under concurrent inserts.
+ */
+public enum ProductSort {
+    ID, PRICE_ASC, PRICE_DESC, NAME;
+
+    public static ProductSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        try {
+            return ProductSort.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unsupported sort: " + value);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.cliqshop.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Lightweight read projection of a product for catalog listings.
+ * Built directly by JPQL constructor expressions so no entity graph is loaded.
+ */
+public class ProductSummaryDto {
+    private Long productId;
+    private String name;
+    private BigDecimal price;
+    private String imageUrl;
+    private Long categoryId;
+    private String categoryName;
+
+    // Constructors
+    public ProductSummaryDto() {
+    }
+
+    public ProductSummaryDto(Long productId, String name, BigDecimal price, String imageUrl,
+                             Long categoryId, String categoryName) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+    }
+
+    // Getters and Setters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+}
@@ -0,0 +1,42 @@
+package com.cliqshop.dto;
+
+public class SuggestionDto {
+    private String text;
+    private String type;
+    private Long id;
+
+    // Constructors
+    public SuggestionDto() {
+    }
+
+    public SuggestionDto(String text, String type, Long id) {
+        this.text = text;
+        this.type = type;
+        this.id = id;
+    }
+
+    // Getters and Setters
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
@@ -2,20 +2,28 @@ package com.cliqshop.entity;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+    // The abandoned-cart sweeper walks idle carts in (updated_at, cart_id) order
+    @Index(name = "idx_carts_updated_at_id", columnList = "updated_at, cart_id")
+}, uniqueConstraints = {
+    // One cart per user: concurrent first adds of a user retry against the cart that won
+    @UniqueConstraint(name = "uk_carts_user", columnNames = "user_id")
+})
 public class Cart {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long cartId;
     
-    @OneToOne
+    // Mapped many-to-one so that uk_carts_user, not an unnamed key of a one-to-one, keeps it one per user
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnoreProperties("user_id")
     private User user;
@@ -26,6 +34,14 @@ public class Cart {
     
     @Column(name = "total_price", nullable = false)
     private BigDecimal totalPrice = BigDecimal.ZERO;
+
+    // Last change to the cart's contents; null on carts not changed since the column was added
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Every mutation touches the cart, so concurrent changes to one cart conflict here
+    @Version
+    private long version;
     
     // Constructors
     public Cart() {
@@ -69,11 +85,84 @@ public class Cart {
     public void setTotalPrice(BigDecimal totalPrice) {
         this.totalPrice = totalPrice;
     }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @PrePersist
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
     
     // Helper methods
     public void calculateTotalPrice() {
         this.totalPrice = items.stream()
-            .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+            .map(CartItem::getLineTotal)
             .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
+
+    // The mutators below keep totalPrice current by applying each line's
+    // change, so no mutation has to look at the other items' products
+
+    public CartItem findItem(Long productId) {
+        for (CartItem item : items) {
+            if (item.getProductId().equals(productId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds {@code quantity} of the product, merging into an existing line.
+     * The line is re-priced at the product's current price.
+     */
+    public CartItem addItem(Product product, int quantity) {
+        touch();
+        CartItem item = findItem(product.getProductId());
+        if (item == null) {
+            item = new CartItem(this, product, quantity);
+            items.add(item);
+            totalPrice = totalPrice.add(item.getLineTotal());
+            return item;
+        }
+        BigDecimal previous = item.getLineTotal();
+        item.snapshot(product);
+        item.setQuantity(item.getQuantity() + quantity);
+        totalPrice = totalPrice.add(item.getLineTotal()).subtract(previous);
+        return item;
+    }
+
+    public CartItem updateItemQuantity(Long productId, int quantity) {
+        CartItem item = findItem(productId);
+        if (item != null) {
+            touch();
+            BigDecimal previous = item.getLineTotal();
+            item.setQuantity(quantity);
+            totalPrice = totalPrice.add(item.getLineTotal()).subtract(previous);
+        }
+        return item;
+    }
+
+    public boolean removeItem(Long productId) {
+        CartItem item = findItem(productId);
+        if (item == null) {
+            return false;
+        }
+        touch();
+        items.remove(item);
+        totalPrice = totalPrice.subtract(item.getLineTotal());
+        return true;
+    }
+
+    public void clearItems() {
+        touch();
+        items.clear();
+        totalPrice = BigDecimal.ZERO;
+    }
 }
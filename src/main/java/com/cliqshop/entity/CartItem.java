@@ -2,8 +2,13 @@ package com.cliqshop.entity;
 
 import jakarta.persistence.*;
 
+import java.math.BigDecimal;
+
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+    // One line per product: concurrent first adds of a product merge on retry instead of duplicating
+    @UniqueConstraint(name = "uk_cart_items_cart_product", columnNames = {"cart_id", "product_id"})
+})
 public class CartItem {
     
     @Id
@@ -14,12 +19,27 @@ public class CartItem {
     @JoinColumn(name = "cart_id", nullable = false)
     private Cart cart;
     
-    @ManyToOne
+    // Pricing and display use the snapshot below, so the product itself is only loaded on demand
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
+
+    // Product details as of the last time this line was added to; null on rows
+    // written before snapshots existed, which fall back to the live product
+    @Column(name = "unit_price", precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "product_image_url")
+    private String productImageUrl;
     
     @Column(nullable = false)
     private int quantity;
+
+    @Version
+    private long version;
     
     // Constructors
     public CartItem() {
@@ -29,6 +49,7 @@ public class CartItem {
         this.cart = cart;
         this.product = product;
         this.quantity = quantity;
+        snapshot(product);
     }
     
     // Getters and Setters
@@ -65,4 +86,52 @@ public class CartItem {
     public void setQuantity(int quantity) {
         this.quantity = quantity;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getProductImageUrl() {
+        return productImageUrl;
+    }
+
+    public void setProductImageUrl(String productImageUrl) {
+        this.productImageUrl = productImageUrl;
+    }
+
+    // Helper methods
+    public Long getProductId() {
+        // Reading the id does not initialize a lazy proxy
+        return product.getProductId();
+    }
+
+    public void snapshot(Product product) {
+        this.unitPrice = product.getPrice();
+        this.productName = product.getName();
+        this.productImageUrl = product.getImageUrl();
+    }
+
+    public BigDecimal getEffectiveUnitPrice() {
+        return unitPrice != null ? unitPrice : product.getPrice();
+    }
+
+    public BigDecimal getLineTotal() {
+        return getEffectiveUnitPrice().multiply(BigDecimal.valueOf(quantity));
+    }
 }
@@ -24,6 +24,9 @@ public class Category {
     @JsonIgnoreProperties("category")
     private Set<Product> products = new HashSet<>();
     
+    @Version
+    private long version;
+    
     // Constructors
     public Category() {
     }
@@ -48,6 +51,10 @@ public class Category {
 		this.categoryId = categoryId;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
 	public void setName(String name) {
         this.name = name;
     }
@@ -67,4 +74,23 @@ public class Category {
     public void setProducts(Set<Product> products) {
         this.products = products;
     }
+
+    // A detached copy without the products, which are loaded lazily
+    public Category copy() {
+        Category copy = new Category(name, description);
+        copy.categoryId = categoryId;
+        copy.version = version;
+        return copy;
+    }
+
+    // A detached copy with copies of the loaded products, which refer back to the copy
+    public Category copyWithProducts() {
+        Category copy = copy();
+        for (Product product : products) {
+            Product productCopy = product.copy();
+            productCopy.setCategory(copy);
+            copy.products.add(productCopy);
+        }
+        return copy;
+    }
 }
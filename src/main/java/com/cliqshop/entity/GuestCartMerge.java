@@ -0,0 +1,62 @@
+package com.cliqshop.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A guest cart token that has been merged into a user's cart, so the same
+ * token merged again (a replayed login, a retried merge) adds nothing. Kept
+ * until the token itself expires.
+ */
+@Entity
+@Table(name = "guest_cart_merges", indexes = {
+    @Index(name = "idx_guest_cart_merges_expires_at", columnList = "expires_at")
+})
+public class GuestCartMerge {
+
+    // The token's signature, hex-encoded
+    @Id
+    @Column(name = "token_id", length = 32)
+    private String tokenId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public GuestCartMerge() {
+    }
+
+    public GuestCartMerge(String tokenId, Long userId, LocalDateTime expiresAt) {
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -6,9 +6,14 @@ import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
+@NamedEntityGraph(name = Inventory.WITH_PRODUCT_GRAPH,
+    attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product"),
+    subgraphs = @NamedSubgraph(name = "product", attributeNodes = @NamedAttributeNode("category")))
 @Table(name = "inventory")
 public class Inventory {
 
+    public static final String WITH_PRODUCT_GRAPH = "Inventory.withProduct";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long inventoryId;
@@ -129,4 +134,12 @@ public class Inventory {
         this.lastRestocked = LocalDateTime.now();
         this.lastUpdated = LocalDateTime.now();
     }
+
+    // A detached copy belonging to the given copy of its product
+    public Inventory copy(Product product) {
+        Inventory copy = new Inventory(product, quantity, lowStockThreshold, lastRestocked, warehouseLocation, sku);
+        copy.inventoryId = inventoryId;
+        copy.lastUpdated = lastUpdated;
+        return copy;
+    }
 }
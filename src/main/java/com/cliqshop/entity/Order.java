@@ -8,7 +8,19 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    // Reservation expiry scans unpaid orders by deadline
+    @Index(name = "idx_orders_reserved_until", columnList = "reserved_until"),
+    // Order history pages by (order_date, order_id) within a user; the trailing columns
+    // make the index cover the summary projection, so a page never reads the order rows
+    @Index(name = "idx_orders_user_history",
+           columnList = "user_id, order_date, order_id, status, payment_status, total_price"),
+    // Admin order search: one keyset ordering per filter it is most often narrowed by
+    @Index(name = "idx_orders_status_history", columnList = "status, order_date, order_id"),
+    @Index(name = "idx_orders_payment_status_history", columnList = "payment_status, order_date, order_id"),
+    @Index(name = "idx_orders_date", columnList = "order_date, order_id"),
+    @Index(name = "idx_orders_total", columnList = "total_price, order_id")
+})
 public class Order {
     
     @Id
@@ -69,6 +81,14 @@ public class Order {
     
     @Column(name = "order_notes")
     private String orderNotes;
+
+    // Whether this order's lines are currently taken out of inventory
+    @Column(name = "stock_reserved", nullable = false)
+    private boolean stockReserved;
+
+    // While unpaid, when the reservation lapses and the order is cancelled; null once paid or released
+    @Column(name = "reserved_until")
+    private LocalDateTime reservedUntil;
     
     // Enum for order status
     public enum OrderStatus {
@@ -218,6 +238,22 @@ public class Order {
     public void setOrderNotes(String orderNotes) {
         this.orderNotes = orderNotes;
     }
+
+    public boolean isStockReserved() {
+        return stockReserved;
+    }
+
+    public void setStockReserved(boolean stockReserved) {
+        this.stockReserved = stockReserved;
+    }
+
+    public LocalDateTime getReservedUntil() {
+        return reservedUntil;
+    }
+
+    public void setReservedUntil(LocalDateTime reservedUntil) {
+        this.reservedUntil = reservedUntil;
+    }
     
     // Helper methods
     public void calculateTotalPrice() {
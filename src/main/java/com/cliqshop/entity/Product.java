@@ -6,8 +6,19 @@ import java.math.BigDecimal;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "products")
+@NamedEntityGraph(name = Product.DETAIL_GRAPH, attributeNodes = {
+    @NamedAttributeNode("category"),
+    @NamedAttributeNode("inventory")
+})
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_price_id", columnList = "price, product_id"),
+    @Index(name = "idx_products_name_id", columnList = "name, product_id")
+})
 public class Product {
+
+    // Everything a serialized product touches; the inverse one-to-one inventory
+    // cannot be proxied, so any read path that skips this graph costs 2 queries per row
+    public static final String DETAIL_GRAPH = "Product.detail";
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,6 +45,9 @@ public class Product {
     @JsonIgnoreProperties("product")
     private Inventory inventory;
     
+    @Version
+    private long version;
+    
     // Constructors
     public Product() {
     }
@@ -62,6 +76,10 @@ public class Product {
 		this.productId = productId;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
 	public void setName(String name) {
         this.name = name;
     }
@@ -105,4 +123,19 @@ public class Product {
     public void setInventory(Inventory inventory) {
         this.inventory = inventory;
     }
+
+    /**
+     * A detached copy of this product, its category and its inventory, so a
+     * cached product can be handed out without callers sharing one instance.
+     * The category's product set is not copied.
+     */
+    public Product copy() {
+        Product copy = new Product(name, description, price, imageUrl, category != null ? category.copy() : null);
+        copy.productId = productId;
+        copy.version = version;
+        if (inventory != null) {
+            copy.inventory = inventory.copy(copy);
+        }
+        return copy;
+    }
 }
@@ -0,0 +1,20 @@
+package com.cliqshop.event;
+
+import java.util.List;
+
+/**
+ * Published by the abandoned-cart sweeper after it has deleted carts, so that
+ * anything holding carts in memory can drop its copies.
+ */
+public class CartsSweptEvent {
+
+    private final List<Long> userIds;
+
+    public CartsSweptEvent(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+}
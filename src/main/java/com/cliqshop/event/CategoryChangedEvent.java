@@ -0,0 +1,40 @@
+package com.cliqshop.event;
+
+import com.cliqshop.entity.Category;
+
+/**
+ * Published by the category service after a category row has been written.
+ * Deleting a category cascades to its products, so listeners must drop
+ * everything they hold for that category.
+ */
+public class CategoryChangedEvent {
+
+    public enum Action {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Action action;
+    private final Long categoryId;
+    private final Category category;
+
+    public CategoryChangedEvent(Action action, Long categoryId, Category category) {
+        this.action = action;
+        this.categoryId = categoryId;
+        this.category = category;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * The category as written, or {@code null} for deletions.
+     */
+    public Category getCategory() {
+        return category;
+    }
+}
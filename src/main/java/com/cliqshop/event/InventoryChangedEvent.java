@@ -0,0 +1,34 @@
+package com.cliqshop.event;
+
+/**
+ * Published by the inventory service after a product's stock record has been
+ * written or deleted. Product reads embed the inventory, so anything caching
+ * products must treat this like a product change.
+ */
+public class InventoryChangedEvent {
+
+    private final Long productId;
+    private final Long categoryId;
+    private final Integer quantity;
+
+    public InventoryChangedEvent(Long productId, Long categoryId, Integer quantity) {
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * The quantity on hand after the change, or {@code null} if the stock record was deleted.
+     */
+    public Integer getQuantity() {
+        return quantity;
+    }
+}
@@ -0,0 +1,75 @@
+package com.cliqshop.event;
+
+import com.cliqshop.entity.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order's status or payment status changed. Recorded in the outbox in the
+ * same transaction as the change and published by the outbox relay once it
+ * has committed, so listeners never hear about a change that rolled back.
+ *
+ * Delivery is at least once: a listener may see the same event again after a
+ * relay failure or restart, and should use {@link #getEventId()} to ignore it.
+ */
+public class OrderChangedEvent {
+
+    public enum Type {
+        STATUS_CHANGED,
+        CANCELLED,
+        RESERVATION_EXPIRED,
+        PAYMENT_STATUS_CHANGED,
+        PAID,
+        PAYMENT_FAILED
+    }
+
+    private final Long eventId;
+    private final Type type;
+    private final Long orderId;
+    private final Long userId;
+    private final Order.OrderStatus status;
+    private final Order.PaymentStatus paymentStatus;
+    private final LocalDateTime occurredAt;
+
+    public OrderChangedEvent(Long eventId, Type type, Long orderId, Long userId, Order.OrderStatus status,
+                             Order.PaymentStatus paymentStatus, LocalDateTime occurredAt) {
+        this.eventId = eventId;
+        this.type = type;
+        this.orderId = orderId;
+        this.userId = userId;
+        this.status = status;
+        this.paymentStatus = paymentStatus;
+        this.occurredAt = occurredAt;
+    }
+
+    /**
+     * The outbox row id, unique per event and increasing in insertion order.
+     */
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public Order.PaymentStatus getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
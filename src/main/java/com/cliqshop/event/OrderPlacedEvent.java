@@ -0,0 +1,56 @@
+package com.cliqshop.event;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Published by the order service when an order has been placed. Listeners run
+ * after the order has committed; the order pipeline uses it to start the
+ * follow-up work the customer does not wait for.
+ */
+public class OrderPlacedEvent {
+
+    private final Long orderId;
+    private final Long userId;
+    private final String email;
+    private final String name;
+    private final BigDecimal totalPrice;
+    private final List<Long> productIds;
+
+    public OrderPlacedEvent(Long orderId, Long userId, String email, String name, BigDecimal totalPrice,
+                            List<Long> productIds) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.email = email;
+        this.name = name;
+        this.totalPrice = totalPrice;
+        this.productIds = productIds;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    /**
+     * The distinct products ordered, whose stock the order took.
+     */
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,61 @@
+package com.cliqshop.event;
+
+import com.cliqshop.entity.Product;
+
+/**
+ * Published by the product service after a product row has been written.
+ * In-memory read models (search index, caches, snapshots) listen for it to
+ * stay in sync without re-reading the catalog.
+ */
+public class ProductChangedEvent {
+
+    public enum Action {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Action action;
+    private final Long productId;
+    private final Product product;
+    private final Long previousCategoryId;
+
+    public ProductChangedEvent(Action action, Long productId, Product product, Long previousCategoryId) {
+        this.action = action;
+        this.productId = productId;
+        this.product = product;
+        this.previousCategoryId = previousCategoryId;
+    }
+
+    public static ProductChangedEvent created(Product product) {
+        return new ProductChangedEvent(Action.CREATED, product.getProductId(), product, null);
+    }
+
+    public static ProductChangedEvent updated(Product product, Long previousCategoryId) {
+        return new ProductChangedEvent(Action.UPDATED, product.getProductId(), product, previousCategoryId);
+    }
+
+    public static ProductChangedEvent deleted(Long productId, Long previousCategoryId) {
+        return new ProductChangedEvent(Action.DELETED, productId, null, previousCategoryId);
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    /**
+     * The product as written, or {@code null} for deletions.
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * The category the product belonged to before the change, or {@code null} for creations.
+     */
+    public Long getPreviousCategoryId() {
+        return previousCategoryId;
+    }
+}
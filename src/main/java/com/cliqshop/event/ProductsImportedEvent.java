@@ -0,0 +1,24 @@
+package com.cliqshop.event;
+
+import java.util.List;
+
+/**
+ * Published by the product import once per written batch, in place of one
+ * {@link ProductChangedEvent} per row, so that listeners can invalidate what
+ * the whole batch touched in one pass.
+ */
+public class ProductsImportedEvent {
+
+    private final List<ProductChangedEvent> changes;
+
+    public ProductsImportedEvent(List<ProductChangedEvent> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * One created or updated product per written row.
+     */
+    public List<ProductChangedEvent> getChanges() {
+        return changes;
+    }
+}
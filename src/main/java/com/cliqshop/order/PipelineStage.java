@@ -0,0 +1,148 @@
+package com.cliqshop.order;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * One stage of the order pipeline: a fixed pool of daemon threads in front of
+ * a bounded queue, with counters for queue depth, queue wait and run time.
+ *
+ * {@link #submit} refuses work when the queue is full, for stages whose caller
+ * can turn the refusal into a response. {@link #execute} instead runs the work
+ * on the calling thread, which slows the stage feeding it rather than losing
+ * the work.
+ */
+public class PipelineStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStage.class);
+
+    private final String name;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder ranOnCaller = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public PipelineStage(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "order-" + name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues {@code work} and returns its result, or throws
+     * {@link RejectedExecutionException} if the queue is full. The future
+     * completes with the work's own exception, not a wrapper.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(run(work, queuedAt));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        return result;
+    }
+
+    /**
+     * Queues {@code work}, or runs it on the calling thread if the queue is
+     * full. Failures are logged; nothing waits on them.
+     */
+    public void execute(Runnable work) {
+        long queuedAt = System.nanoTime();
+        Runnable task = () -> {
+            try {
+                run(() -> {
+                    work.run();
+                    return null;
+                }, queuedAt);
+            } catch (RuntimeException e) {
+                logger.error("Order pipeline stage {} failed: {}", name, e.getMessage());
+            }
+        };
+        submitted.increment();
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            ranOnCaller.increment();
+            task.run();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long done = completed.sum() + failed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("ranOnCaller", ranOnCaller.sum());
+        stats.put("avgQueueWaitMillis", done > 0 ? queueWaitNanos.sum() / done / 1e6 : 0.0);
+        stats.put("maxQueueWaitMillis", maxQueueWaitNanos.get() / 1e6);
+        stats.put("avgRunMillis", done > 0 ? runNanos.sum() / done / 1e6 : 0.0);
+        stats.put("maxRunMillis", maxRunNanos.get() / 1e6);
+        return stats;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Supplier<T> work, long queuedAt) {
+        long started = System.nanoTime();
+        record(queueWaitNanos, maxQueueWaitNanos, started - queuedAt);
+        try {
+            T value = work.get();
+            completed.increment();
+            return value;
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            throw e;
+        } finally {
+            record(runNanos, maxRunNanos, System.nanoTime() - started);
+        }
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -56,7 +56,12 @@ public interface PaymentService {
      * @throws StripeException if Stripe API calls fail
      */
     Event processWebhookEvent(String payload, String sigHeader) throws StripeException;
-    public com.stripe.model.checkout.Session createCheckoutSession(com.stripe.param.checkout.SessionCreateParams sessionCreateParams) throws StripeException;
+    /**
+     * Creates a Stripe Checkout Session; a non-null idempotency key is passed
+     * to Stripe, so a repeated call returns the session created the first time
+     */
+    public com.stripe.model.checkout.Session createCheckoutSession(com.stripe.param.checkout.SessionCreateParams sessionCreateParams,
+                                                                   String idempotencyKey) throws StripeException;
 
     String getPublishableKey(); 
 }
\ No newline at end of file
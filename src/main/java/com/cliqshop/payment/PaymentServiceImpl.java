@@ -12,6 +12,7 @@ import com.stripe.exception.StripeException;
 import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.net.Webhook;
 import com.stripe.param.PaymentIntentConfirmParams;
 import com.stripe.param.PaymentIntentCreateParams;
@@ -128,10 +129,16 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    public Session createCheckoutSession(com.stripe.param.checkout.SessionCreateParams params) throws StripeException {
+    public Session createCheckoutSession(com.stripe.param.checkout.SessionCreateParams params,
+                                         String idempotencyKey) throws StripeException {
         logger.info("Creating Stripe Checkout session");
-        
-        return Session.create(params);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return Session.create(params);
+        }
+        // Stripe keys are per account, so qualify the client's key with the order
+        return Session.create(params, RequestOptions.builder()
+                .setIdempotencyKey("checkout-" + params.getMetadata().get("orderId") + "-" + idempotencyKey)
+                .build());
     }
 
     // Helper methods to handle webhook events
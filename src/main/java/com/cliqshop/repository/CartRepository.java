@@ -1,14 +1,57 @@
 package com.cliqshop.repository;
 
+import com.cliqshop.cart.IdleCart;
 import com.cliqshop.entity.Cart;
-import com.cliqshop.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
-    Optional<Cart> findByUser(User user);
-    Optional<Cart> findByUser_UserId(Long userId);  
-}
\ No newline at end of file
+    Optional<Cart> findByUser_UserId(Long userId);
+
+    // Cart operations read the cart and its lines, including each line's product
+    // snapshot, in one statement keyed by the user id
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.user.userId = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+
+    // Write-behind flushes load a batch of carts with their items in one query
+    @EntityGraph(attributePaths = "items")
+    List<Cart> findByUser_UserIdIn(Collection<Long> userIds);
+
+    // The abandoned-cart sweeper pages idle carts by (updatedAt, cartId), a range on idx_carts_updated_at_id
+
+    @Query("SELECT new com.cliqshop.cart.IdleCart(c.cartId, c.user.userId, c.updatedAt) FROM Cart c " +
+           "WHERE c.updatedAt < :cutoff AND (c.updatedAt > :afterUpdatedAt " +
+           "OR (c.updatedAt = :afterUpdatedAt AND c.cartId > :afterId)) ORDER BY c.updatedAt ASC, c.cartId ASC")
+    List<IdleCart> findIdleAfter(@Param("cutoff") LocalDateTime cutoff,
+                                 @Param("afterUpdatedAt") LocalDateTime afterUpdatedAt,
+                                 @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT c.cartId FROM Cart c WHERE c.updatedAt IS NULL ORDER BY c.cartId ASC")
+    List<Long> findIdsWithoutUpdatedAt(Limit limit);
+
+    @Modifying
+    @Query("UPDATE Cart c SET c.updatedAt = :updatedAt WHERE c.cartId IN :cartIds AND c.updatedAt IS NULL")
+    int setUpdatedAt(@Param("cartIds") Collection<Long> cartIds, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Both deletes re-check the cutoff, so a cart changed since it was selected survives
+
+    @Modifying
+    @Query("DELETE FROM CartItem i WHERE i.cart.cartId IN " +
+           "(SELECT c.cartId FROM Cart c WHERE c.cartId IN :cartIds AND c.updatedAt < :cutoff)")
+    int deleteIdleItems(@Param("cartIds") Collection<Long> cartIds, @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.cartId IN :cartIds AND c.updatedAt < :cutoff")
+    int deleteIdle(@Param("cartIds") Collection<Long> cartIds, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,10 +1,22 @@
 package com.cliqshop.repository;
 
 import com.cliqshop.entity.Category;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     Category findByName(String name);
+
+    @Query("SELECT DISTINCT c FROM Category c LEFT JOIN FETCH c.products p LEFT JOIN FETCH p.inventory")
+    List<Category> findAllWithProducts();
+
+    // A single category serializes with its products and their stock
+    @EntityGraph(attributePaths = {"products", "products.inventory"})
+    Optional<Category> findWithProductsByCategoryId(Long categoryId);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.cliqshop.repository;
+
+import com.cliqshop.entity.GuestCartMerge;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GuestCartMergeRepository extends JpaRepository<GuestCartMerge, String> {
+
+    // Inserted first in the merge's transaction: a concurrent merge of the same
+    // token blocks on the primary key until this one commits or rolls back
+    @Modifying
+    @Query(value = "INSERT INTO guest_cart_merges (token_id, user_id, expires_at) " +
+                   "VALUES (:tokenId, :userId, :expiresAt)", nativeQuery = true)
+    int claim(@Param("tokenId") String tokenId, @Param("userId") Long userId,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Purged oldest first in bounded batches along idx_guest_cart_merges_expires_at
+
+    @Query("SELECT m.tokenId FROM GuestCartMerge m WHERE m.expiresAt < :now ORDER BY m.expiresAt ASC")
+    List<String> findIdsExpiredBefore(@Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM GuestCartMerge m WHERE m.tokenId IN :tokenIds")
+    int deleteByIds(@Param("tokenIds") Collection<String> tokenIds);
+}
@@ -0,0 +1,44 @@
+package com.cliqshop.repository;
+
+import com.cliqshop.entity.IdempotencyRecord;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Inserted first in the request's transaction: a concurrent request with the
+    // same key blocks on the primary key until this one commits or rolls back
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, status_code, created_at) " +
+                   "VALUES (:key, :requestHash, 0, :createdAt)", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash,
+              @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.responseBody = :responseBody " +
+           "WHERE r.idempotencyKey = :key")
+    int complete(@Param("key") String key, @Param("statusCode") int statusCode,
+                 @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.createdAt < :cutoff")
+    int deleteIfExpired(@Param("key") String key, @Param("cutoff") LocalDateTime cutoff);
+
+    // Purged oldest first in bounded batches along idx_idempotency_keys_created_at
+
+    @Query("SELECT r.idempotencyKey FROM IdempotencyRecord r WHERE r.createdAt < :cutoff ORDER BY r.createdAt ASC")
+    List<String> findKeysCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey IN :keys")
+    int deleteByKeys(@Param("keys") Collection<String> keys);
+}
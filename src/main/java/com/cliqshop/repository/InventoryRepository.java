@@ -2,23 +2,41 @@ package com.cliqshop.repository;
 
 import com.cliqshop.entity.Inventory;
 import com.cliqshop.entity.Product;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+
+    @Override
+    @EntityGraph(Inventory.WITH_PRODUCT_GRAPH)
+    List<Inventory> findAll();
     
     // Use explicit query since field is productId not id
+    @EntityGraph(Inventory.WITH_PRODUCT_GRAPH)
     @Query("SELECT i FROM Inventory i WHERE i.product.productId = :productId")
     Optional<Inventory> findByProductId(Long productId);
     
+    @EntityGraph(Inventory.WITH_PRODUCT_GRAPH)
     @Query("SELECT i FROM Inventory i WHERE i.quantity <= i.lowStockThreshold")
     List<Inventory> findLowStockItems();
     
+    // Applies a stock change in the database, refusing one that would go negative,
+    // so concurrent changes cannot overwrite each other
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.quantity = i.quantity + :change, i.lastUpdated = :now " +
+           "WHERE i.product.productId = :productId AND i.quantity + :change >= 0")
+    int adjustQuantity(@Param("productId") Long productId, @Param("change") int change,
+                       @Param("now") LocalDateTime now);
+
     boolean existsByProduct(Product product);
     Optional<Inventory> findBySku(String sku);
     List<Inventory> findByWarehouseLocation(String location);
@@ -1,15 +1,21 @@
 package com.cliqshop.repository;
 
+import com.cliqshop.dto.OrderItemSummaryDto;
+import com.cliqshop.dto.OrderSummaryDto;
 import com.cliqshop.entity.Order;
 import com.cliqshop.entity.Order.OrderStatus;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +39,44 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUser_UserIdOrderByOrderDateDesc(Long userId, Pageable pageable);
     Page<Order> findByUser_UserId(Long userId, Pageable pageable);
     long countByUser_UserId(Long userId);
+
+    // Order history, newest first: keyset on (orderDate, orderId) within a user, a range
+    // scan on idx_orders_user_history. o.user.userId reads the foreign key without a join
+    @Query("SELECT new com.cliqshop.dto.OrderSummaryDto(o.orderId, o.orderDate, o.status, o.paymentStatus, o.totalPrice) " +
+           "FROM Order o WHERE o.user.userId = :userId ORDER BY o.orderDate DESC, o.orderId DESC")
+    List<OrderSummaryDto> findSummariesByUser(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.OrderSummaryDto(o.orderId, o.orderDate, o.status, o.paymentStatus, o.totalPrice) " +
+           "FROM Order o WHERE o.user.userId = :userId AND (o.orderDate, o.orderId) < (:orderDate, :afterId) " +
+           "ORDER BY o.orderDate DESC, o.orderId DESC")
+    List<OrderSummaryDto> findSummariesByUserBefore(@Param("userId") Long userId,
+                                                    @Param("orderDate") LocalDateTime orderDate,
+                                                    @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.OrderItemSummaryDto(i.order.orderId, i.orderItemId, p.productId, p.name, " +
+           "p.imageUrl, i.quantity, i.price) FROM OrderItem i JOIN i.product p " +
+           "WHERE i.order.orderId IN :orderIds ORDER BY i.orderItemId ASC")
+    List<OrderItemSummaryDto> findItemSummaries(@Param("orderIds") Collection<Long> orderIds);
+
+    // Stock reservations: each change is conditional, so only one of a cancel, a
+    // payment and the expiry job acts on a given reservation
+
+    @Modifying
+    @Query("UPDATE Order o SET o.stockReserved = false, o.reservedUntil = null " +
+           "WHERE o.orderId = :orderId AND o.stockReserved = true")
+    int releaseReservation(@Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.reservedUntil = null WHERE o.orderId = :orderId AND o.stockReserved = true")
+    int confirmReservation(@Param("orderId") Long orderId);
+
+    @Query("SELECT o.orderId FROM Order o WHERE o.reservedUntil < :now ORDER BY o.reservedUntil ASC")
+    List<Long> findExpiredReservations(@Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = com.cliqshop.entity.Order.OrderStatus.CANCELLED, " +
+           "o.stockReserved = false, o.reservedUntil = null " +
+           "WHERE o.orderId = :orderId AND o.reservedUntil < :now AND o.stockReserved = true " +
+           "AND o.paymentStatus = com.cliqshop.entity.Order.PaymentStatus.PENDING")
+    int expireReservation(@Param("orderId") Long orderId, @Param("now") LocalDateTime now);
 }
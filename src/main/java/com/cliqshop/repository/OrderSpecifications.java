@@ -0,0 +1,98 @@
+package com.cliqshop.repository;
+
+import com.cliqshop.dto.OrderSearchCriteria;
+import com.cliqshop.dto.OrderSearchSort;
+import com.cliqshop.entity.Order;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Building blocks for the admin order search. Each filter is a separate
+ * specification so only the ones a request uses end up in the WHERE clause,
+ * leaving the database free to pick the index that matches them.
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    /**
+     * All the filters set in {@code criteria}, combined with AND.
+     */
+    public static Specification<Order> matching(OrderSearchCriteria criteria) {
+        List<Specification<Order>> specs = new ArrayList<>();
+        if (criteria.getStatus() != null) {
+            specs.add(hasStatus(criteria.getStatus()));
+        }
+        if (criteria.getPaymentStatus() != null) {
+            specs.add(hasPaymentStatus(criteria.getPaymentStatus()));
+        }
+        if (criteria.getFrom() != null) {
+            specs.add(placedFrom(criteria.getFrom()));
+        }
+        if (criteria.getTo() != null) {
+            specs.add(placedBefore(criteria.getTo()));
+        }
+        if (criteria.getUserId() != null) {
+            specs.add(placedBy(criteria.getUserId()));
+        }
+        if (criteria.getMinTotal() != null) {
+            specs.add(totalAtLeast(criteria.getMinTotal()));
+        }
+        if (criteria.getMaxTotal() != null) {
+            specs.add(totalAtMost(criteria.getMaxTotal()));
+        }
+        return Specification.allOf(specs);
+    }
+
+    public static Specification<Order> hasStatus(Order.OrderStatus status) {
+        return (order, query, cb) -> cb.equal(order.get("status"), status);
+    }
+
+    public static Specification<Order> hasPaymentStatus(Order.PaymentStatus paymentStatus) {
+        return (order, query, cb) -> cb.equal(order.get("paymentStatus"), paymentStatus);
+    }
+
+    public static Specification<Order> placedFrom(LocalDateTime from) {
+        return (order, query, cb) -> cb.greaterThanOrEqualTo(order.get("orderDate"), from);
+    }
+
+    public static Specification<Order> placedBefore(LocalDateTime to) {
+        return (order, query, cb) -> cb.lessThan(order.get("orderDate"), to);
+    }
+
+    // user.userId is the foreign key column, so this adds no join
+    public static Specification<Order> placedBy(Long userId) {
+        return (order, query, cb) -> cb.equal(order.get("user").get("userId"), userId);
+    }
+
+    public static Specification<Order> totalAtLeast(BigDecimal minTotal) {
+        return (order, query, cb) -> cb.greaterThanOrEqualTo(order.get("totalPrice"), minTotal);
+    }
+
+    public static Specification<Order> totalAtMost(BigDecimal maxTotal) {
+        return (order, query, cb) -> cb.lessThanOrEqualTo(order.get("totalPrice"), maxTotal);
+    }
+
+    /**
+     * Keyset position: the orders that come after ({@code sortKey}, {@code orderId})
+     * in the given ordering. The sort key is an order date or a total.
+     */
+    public static Specification<Order> after(OrderSearchSort sort, Comparable<?> sortKey, Long orderId) {
+        return (order, query, cb) -> {
+            Path<Comparable<Object>> key = order.get(sort.isByTotal() ? "totalPrice" : "orderDate");
+            Path<Long> id = order.get("orderId");
+            @SuppressWarnings("unchecked")
+            Comparable<Object> value = (Comparable<Object>) sortKey;
+            if (sort.isDescending()) {
+                return cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, orderId)));
+            }
+            return cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, orderId)));
+        };
+    }
+}
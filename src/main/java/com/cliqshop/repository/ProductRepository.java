@@ -1,17 +1,89 @@
 package com.cliqshop.repository;
 
+import com.cliqshop.dto.ProductSummaryDto;
 import com.cliqshop.entity.Product;
+import com.cliqshop.search.ProductFacetDocument;
+import com.cliqshop.search.ProductSearchDocument;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    // Entity reads load the detail graph so category and inventory come back in the same statement
+    @Override
+    @EntityGraph(Product.DETAIL_GRAPH)
+    List<Product> findAll();
+
+    @Override
+    @EntityGraph(Product.DETAIL_GRAPH)
+    Optional<Product> findById(Long id);
+
 	// Option 1: Using JPQL query
-    @Query("SELECT p FROM Product p WHERE p.category.categoryId = :categoryId")
+    @EntityGraph(Product.DETAIL_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.category.categoryId = :categoryId ORDER BY p.productId ASC")
     List<Product> findByCategoryId(@Param("categoryId") Long categoryId);
+
+    @EntityGraph(Product.DETAIL_GRAPH)
     List<Product> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+
+    // Bulk loads for the product cache: any number of ids in one IN query
+    @EntityGraph(Product.DETAIL_GRAPH)
+    List<Product> findByProductIdIn(Collection<Long> productIds);
+
+    // Keyset listing: each ordering is (sort key, productId) so the row-value
+    // comparison can be served by a range scan on the matching composite index.
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c ORDER BY p.productId ASC")
+    List<ProductSummaryDto> findSummariesOrderById(Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c WHERE p.productId > :afterId ORDER BY p.productId ASC")
+    List<ProductSummaryDto> findSummariesAfterId(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c ORDER BY p.price ASC, p.productId ASC")
+    List<ProductSummaryDto> findSummariesOrderByPriceAsc(Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c WHERE (p.price, p.productId) > (:price, :afterId) " +
+           "ORDER BY p.price ASC, p.productId ASC")
+    List<ProductSummaryDto> findSummariesAfterPriceAsc(@Param("price") BigDecimal price, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c ORDER BY p.price DESC, p.productId DESC")
+    List<ProductSummaryDto> findSummariesOrderByPriceDesc(Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c WHERE (p.price, p.productId) < (:price, :afterId) " +
+           "ORDER BY p.price DESC, p.productId DESC")
+    List<ProductSummaryDto> findSummariesAfterPriceDesc(@Param("price") BigDecimal price, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c ORDER BY p.name ASC, p.productId ASC")
+    List<ProductSummaryDto> findSummariesOrderByName(Limit limit);
+
+    @Query("SELECT new com.cliqshop.dto.ProductSummaryDto(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c WHERE (p.name, p.productId) > (:name, :afterId) " +
+           "ORDER BY p.name ASC, p.productId ASC")
+    List<ProductSummaryDto> findSummariesAfterName(@Param("name") String name, @Param("afterId") Long afterId, Limit limit);
+
+    // Batched load of the columns the in-memory search structures index
+    @Query("SELECT new com.cliqshop.search.ProductSearchDocument(p.productId, p.name, p.description, p.price, p.imageUrl, c.categoryId, c.name) " +
+           "FROM Product p JOIN p.category c WHERE p.productId > :afterId ORDER BY p.productId ASC")
+    List<ProductSearchDocument> findSearchDocumentsAfterId(@Param("afterId") Long afterId, Limit limit);
+
+    // Batched load for the facet index, which also needs stock on hand
+    @Query("SELECT new com.cliqshop.search.ProductFacetDocument(p.productId, p.name, p.price, p.imageUrl, c.categoryId, c.name, i.quantity) " +
+           "FROM Product p JOIN p.category c LEFT JOIN p.inventory i WHERE p.productId > :afterId ORDER BY p.productId ASC")
+    List<ProductFacetDocument> findFacetDocumentsAfterId(@Param("afterId") Long afterId, Limit limit);
+}
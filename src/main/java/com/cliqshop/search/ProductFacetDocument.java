@@ -0,0 +1,56 @@
+package com.cliqshop.search;
+
+import java.math.BigDecimal;
+
+/**
+ * The columns the facet index needs from a product row, including the stock
+ * on hand ({@code null} when the product has no inventory record).
+ */
+public class ProductFacetDocument {
+    private final Long productId;
+    private final String name;
+    private final BigDecimal price;
+    private final String imageUrl;
+    private final Long categoryId;
+    private final String categoryName;
+    private final Integer quantity;
+
+    public ProductFacetDocument(Long productId, String name, BigDecimal price, String imageUrl,
+                                Long categoryId, String categoryName, Integer quantity) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+}
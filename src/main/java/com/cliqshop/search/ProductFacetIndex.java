@@ -0,0 +1,517 @@
+package com.cliqshop.search;
+
+import com.cliqshop.dto.FacetedProductPage;
+import com.cliqshop.dto.ProductSummaryDto;
+import com.cliqshop.entity.Product;
+import com.cliqshop.event.CategoryChangedEvent;
+import com.cliqshop.event.InventoryChangedEvent;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.repository.ProductRepository;
+import com.cliqshop.service.CursorCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap index over the filterable product facets: category,
+ * price band and whether the product is in stock.
+ *
+ * Each product keeps one int ordinal while it is indexed, and every facet
+ * value owns a {@link CompressedBitmap} of the ordinals that have it. Deleted
+ * products leave their ordinal unused; once those outnumber live products the
+ * ordinals are renumbered in order, as {@link ProductSearchIndex} compacts. A
+ * filter is an AND of ORs over those bitmaps; facet counts are intersection
+ * cardinalities, so neither touches a product until the page is cut. Prices
+ * are bucketed into fixed bands; a range that splits a band checks that band's
+ * products one by one.
+ */
+@Component
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    // Lower bounds of the price bands in cents; the last band is open-ended
+    private static final long[] BAND_BOUNDS = {0, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000};
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MIN_TOMBSTONES_FOR_COMPACTION = 10_000;
+    private static final String CURSOR_KIND = "facets";
+
+    private static final Comparator<FacetedProductPage.CategoryCount> CATEGORY_ORDER = Comparator
+            .comparingInt(FacetedProductPage.CategoryCount::getCount).reversed()
+            .thenComparing(FacetedProductPage.CategoryCount::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<IndexedProduct> documents = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Map<Long, CompressedBitmap> byCategory = new HashMap<>();
+    private final Map<Long, String> categoryNames = new HashMap<>();
+    private final CompressedBitmap[] byBand = new CompressedBitmap[BAND_BOUNDS.length];
+    private final CompressedBitmap inStock = new CompressedBitmap();
+    private final CompressedBitmap live = new CompressedBitmap();
+    private final Set<Long> changedDuringLoad = new HashSet<>();
+    private int tombstones;
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public ProductFacetIndex() {
+        for (int i = 0; i < byBand.length; i++) {
+            byBand[i] = new CompressedBitmap();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        loading = true;
+        Long afterId = 0L;
+        List<ProductFacetDocument> batch;
+        do {
+            batch = productRepository.findFacetDocumentsAfterId(afterId, Limit.of(LOAD_BATCH_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (ProductFacetDocument document : batch) {
+                    // A write that raced the load is newer than the row read here
+                    if (!changedDuringLoad.contains(document.getProductId())) {
+                        indexLocked(document, document.getQuantity() != null && document.getQuantity() > 0);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getProductId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            changedDuringLoad.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product facet index loaded {} products in {} ms", size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getAction() == ProductChangedEvent.Action.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        Product product = event.getProduct();
+        Integer quantity = product.getInventory() != null ? product.getInventory().getQuantity() : null;
+        ProductFacetDocument document = new ProductFacetDocument(product.getProductId(), product.getName(),
+                product.getPrice(), product.getImageUrl(), product.getCategory().getCategoryId(),
+                product.getCategory().getName(), quantity);
+        index(document, quantity != null ? Boolean.valueOf(quantity > 0) : null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        Integer quantity = event.getQuantity();
+        updateStock(event.getProductId(), quantity != null && quantity > 0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.getAction() == CategoryChangedEvent.Action.DELETED) {
+            removeCategory(event.getCategoryId());
+        } else if (event.getAction() == CategoryChangedEvent.Action.UPDATED) {
+            renameCategory(event.getCategoryId(), event.getCategory().getName());
+        }
+    }
+
+    /**
+     * Indexes or re-indexes a product. {@code inStock} may be {@code null} when
+     * the write did not carry stock, in which case the product keeps its
+     * current stock state (out of stock if it is new).
+     */
+    public void index(ProductFacetDocument document, Boolean inStock) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedDuringLoad.add(document.getProductId());
+            }
+            boolean stocked;
+            if (inStock != null) {
+                stocked = inStock;
+            } else {
+                Integer ordinal = ordinals.get(document.getProductId());
+                stocked = ordinal != null && this.inStock.contains(ordinal);
+            }
+            indexLocked(document, stocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateStock(Long productId, boolean stocked) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal == null) {
+                // Not indexed yet; the product write that follows carries its own stock
+                return;
+            }
+            if (loading) {
+                changedDuringLoad.add(productId);
+            }
+            if (stocked) {
+                inStock.add(ordinal);
+            } else {
+                inStock.remove(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedDuringLoad.add(productId);
+            }
+            removeLocked(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void renameCategory(Long categoryId, String categoryName) {
+        lock.writeLock().lock();
+        try {
+            if (categoryNames.containsKey(categoryId)) {
+                categoryNames.put(categoryId, categoryName);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            CompressedBitmap members = byCategory.get(categoryId);
+            if (members == null) {
+                return;
+            }
+            List<Long> productIds = new ArrayList<>(members.cardinality());
+            for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+                productIds.add(documents.get(ordinal).productId);
+            }
+            for (Long productId : productIds) {
+                if (loading) {
+                    changedDuringLoad.add(productId);
+                }
+                removeLocked(productId);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of products matching every given facet, with counts for
+     * each facet value. An empty or {@code null} {@code categoryIds} matches
+     * any category; price bounds are inclusive and either may be {@code null}.
+     * Pages follow index order, which is product id order for products that
+     * existed at startup. A cursor names the last product returned, so it
+     * survives a compaction as long as that product is still indexed.
+     */
+    public FacetedProductPage filter(Set<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                     boolean inStockOnly, String cursor, int limit) {
+        int lastOrdinal = -1;
+        Long lastProductId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = CursorCodec.decode(cursor, CURSOR_KIND, 2);
+            try {
+                lastOrdinal = Integer.parseInt(position[0]);
+                lastProductId = Long.valueOf(position[1]);
+            } catch (NumberFormatException e) {
+                throw new InvalidRequestException("Malformed cursor");
+            }
+        }
+        long minCents = minPrice != null ? toCents(minPrice) : Long.MIN_VALUE;
+        long maxCents = maxPrice != null ? toCents(maxPrice) : Long.MAX_VALUE;
+
+        lock.readLock().lock();
+        try {
+            // Compaction renumbers ordinals but keeps their order, so resume after the product if it is still here
+            Integer current = lastProductId != null ? ordinals.get(lastProductId) : null;
+            int from = (current != null ? current : lastOrdinal) + 1;
+
+            CompressedBitmap categoryMatch = null;
+            if (categoryIds != null && !categoryIds.isEmpty()) {
+                categoryMatch = new CompressedBitmap();
+                for (Long categoryId : categoryIds) {
+                    CompressedBitmap members = byCategory.get(categoryId);
+                    if (members != null) {
+                        categoryMatch = categoryMatch.or(members);
+                    }
+                }
+            }
+            CompressedBitmap priceMatch = minPrice != null || maxPrice != null
+                    ? priceRange(minCents, maxCents)
+                    : null;
+            CompressedBitmap stockMatch = inStockOnly ? inStock : null;
+
+            // Each facet is counted against the other facets' filters, so a
+            // client can show what picking another value would return
+            CompressedBitmap withoutCategory = intersect(live, priceMatch, stockMatch);
+            CompressedBitmap withoutPrice = intersect(live, categoryMatch, stockMatch);
+            CompressedBitmap withoutStock = intersect(live, categoryMatch, priceMatch);
+            CompressedBitmap matches = stockMatch != null ? withoutStock.and(stockMatch) : withoutStock;
+
+            List<FacetedProductPage.CategoryCount> categories = new ArrayList<>(byCategory.size());
+            for (Map.Entry<Long, CompressedBitmap> entry : byCategory.entrySet()) {
+                int count = withoutCategory == live
+                        ? entry.getValue().cardinality()
+                        : entry.getValue().andCardinality(withoutCategory);
+                if (count > 0 || (categoryIds != null && categoryIds.contains(entry.getKey()))) {
+                    categories.add(new FacetedProductPage.CategoryCount(entry.getKey(),
+                            categoryNames.get(entry.getKey()), count));
+                }
+            }
+            categories.sort(CATEGORY_ORDER);
+
+            List<FacetedProductPage.PriceRangeCount> priceRanges = new ArrayList<>(BAND_BOUNDS.length);
+            for (int band = 0; band < BAND_BOUNDS.length; band++) {
+                BigDecimal bandMax = band + 1 < BAND_BOUNDS.length ? fromCents(BAND_BOUNDS[band + 1]) : null;
+                int count = withoutPrice == live
+                        ? byBand[band].cardinality()
+                        : byBand[band].andCardinality(withoutPrice);
+                priceRanges.add(new FacetedProductPage.PriceRangeCount(fromCents(BAND_BOUNDS[band]), bandMax, count));
+            }
+
+            List<ProductSummaryDto> items = new ArrayList<>(Math.min(limit, 64));
+            int ordinal = matches.nextSetBit(from);
+            while (ordinal >= 0 && items.size() < limit) {
+                items.add(documents.get(ordinal).toSummary(categoryNames));
+                ordinal = matches.nextSetBit(ordinal + 1);
+            }
+            String nextCursor = null;
+            if (ordinal >= 0 && !items.isEmpty()) {
+                Long lastId = items.get(items.size() - 1).getProductId();
+                nextCursor = CursorCodec.encode(CURSOR_KIND, String.valueOf(ordinals.get(lastId)),
+                        String.valueOf(lastId));
+            }
+
+            return new FacetedProductPage(items, nextCursor, matches.cardinality(), categories, priceRanges,
+                    withoutStock.andCardinality(inStock));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private CompressedBitmap priceRange(long minCents, long maxCents) {
+        CompressedBitmap result = new CompressedBitmap();
+        for (int band = 0; band < BAND_BOUNDS.length; band++) {
+            long bandMin = BAND_BOUNDS[band];
+            long bandMax = band + 1 < BAND_BOUNDS.length ? BAND_BOUNDS[band + 1] - 1 : Long.MAX_VALUE;
+            if (bandMax < minCents || bandMin > maxCents) {
+                continue;
+            }
+            CompressedBitmap members = byBand[band];
+            if (bandMin >= minCents && bandMax <= maxCents) {
+                result = result.or(members);
+                continue;
+            }
+            // The range splits this band, so check its products' prices
+            CompressedBitmap partial = new CompressedBitmap();
+            members.forEach(ordinal -> {
+                long cents = documents.get(ordinal).priceCents;
+                if (cents >= minCents && cents <= maxCents) {
+                    partial.add(ordinal);
+                }
+            });
+            result = result.or(partial);
+        }
+        return result;
+    }
+
+    private static CompressedBitmap intersect(CompressedBitmap base, CompressedBitmap first, CompressedBitmap second) {
+        CompressedBitmap result = base;
+        if (first != null) {
+            result = result.and(first);
+        }
+        if (second != null) {
+            result = result.and(second);
+        }
+        return result;
+    }
+
+    private void indexLocked(ProductFacetDocument document, boolean stocked) {
+        Integer ordinal = ordinals.get(document.getProductId());
+        if (ordinal == null) {
+            ordinal = documents.size();
+            documents.add(null);
+            ordinals.put(document.getProductId(), ordinal);
+            live.add(ordinal);
+        } else {
+            unlinkLocked(ordinal);
+        }
+
+        IndexedProduct product = new IndexedProduct(document);
+        documents.set(ordinal, product);
+        byCategory.computeIfAbsent(product.categoryId, id -> new CompressedBitmap()).add(ordinal);
+        categoryNames.put(product.categoryId, document.getCategoryName());
+        if (product.band >= 0) {
+            byBand[product.band].add(ordinal);
+        }
+        if (stocked) {
+            inStock.add(ordinal);
+        } else {
+            inStock.remove(ordinal);
+        }
+    }
+
+    private void removeLocked(Long productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal != null) {
+            unlinkLocked(ordinal);
+            inStock.remove(ordinal);
+            live.remove(ordinal);
+            documents.set(ordinal, null);
+            tombstones++;
+        }
+    }
+
+    // Renumbers the live products 0..n-1 in their current order and rebuilds the bitmaps
+    private void compactIfNeeded() {
+        if (tombstones < MIN_TOMBSTONES_FOR_COMPACTION || tombstones < ordinals.size()) {
+            return;
+        }
+        List<IndexedProduct> survivors = new ArrayList<>(ordinals.size());
+        CompressedBitmap stocked = new CompressedBitmap();
+        for (int old = 0; old < documents.size(); old++) {
+            IndexedProduct product = documents.get(old);
+            if (product != null) {
+                if (inStock.contains(old)) {
+                    stocked.add(survivors.size());
+                }
+                survivors.add(product);
+            }
+        }
+        documents.clear();
+        ordinals.clear();
+        byCategory.clear();
+        for (CompressedBitmap band : byBand) {
+            band.clear();
+        }
+        inStock.clear();
+        live.clear();
+        for (int ordinal = 0; ordinal < survivors.size(); ordinal++) {
+            IndexedProduct product = survivors.get(ordinal);
+            documents.add(product);
+            ordinals.put(product.productId, ordinal);
+            live.add(ordinal);
+            byCategory.computeIfAbsent(product.categoryId, id -> new CompressedBitmap()).add(ordinal);
+            if (product.band >= 0) {
+                byBand[product.band].add(ordinal);
+            }
+        }
+        stocked.forEach(inStock::add);
+        tombstones = 0;
+    }
+
+    // Takes the ordinal out of its category and price band; stock is left to the caller
+    private void unlinkLocked(int ordinal) {
+        IndexedProduct previous = documents.get(ordinal);
+        CompressedBitmap members = byCategory.get(previous.categoryId);
+        members.remove(ordinal);
+        if (members.isEmpty()) {
+            byCategory.remove(previous.categoryId);
+            categoryNames.remove(previous.categoryId);
+        }
+        if (previous.band >= 0) {
+            byBand[previous.band].remove(ordinal);
+        }
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static int bandOf(long cents) {
+        for (int band = BAND_BOUNDS.length - 1; band >= 0; band--) {
+            if (cents >= BAND_BOUNDS[band]) {
+                return band;
+            }
+        }
+        return -1;
+    }
+
+    private static final class IndexedProduct {
+        private final Long productId;
+        private final String name;
+        private final BigDecimal price;
+        private final String imageUrl;
+        private final Long categoryId;
+        private final long priceCents;
+        private final int band;
+
+        private IndexedProduct(ProductFacetDocument document) {
+            this.productId = document.getProductId();
+            this.name = document.getName();
+            this.price = document.getPrice();
+            this.imageUrl = document.getImageUrl();
+            this.categoryId = document.getCategoryId();
+            // Products without a price sit in no band and never match a price filter
+            this.priceCents = price != null ? toCents(price) : -1;
+            this.band = price != null ? bandOf(priceCents) : -1;
+        }
+
+        private ProductSummaryDto toSummary(Map<Long, String> categoryNames) {
+            return new ProductSummaryDto(productId, name, price, imageUrl, categoryId, categoryNames.get(categoryId));
+        }
+    }
+}
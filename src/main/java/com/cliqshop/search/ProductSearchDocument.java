@@ -0,0 +1,65 @@
+package com.cliqshop.search;
+
+import com.cliqshop.entity.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * The columns the in-memory search structures need from a product row,
+ * loaded by a constructor projection so startup never hydrates entities.
+ */
+public class ProductSearchDocument {
+    private final Long productId;
+    private final String name;
+    private final String description;
+    private final BigDecimal price;
+    private final String imageUrl;
+    private final Long categoryId;
+    private final String categoryName;
+
+    public ProductSearchDocument(Long productId, String name, String description, BigDecimal price,
+                                 String imageUrl, Long categoryId, String categoryName) {
+        this.productId = productId;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+    }
+
+    public static ProductSearchDocument from(Product product) {
+        return new ProductSearchDocument(product.getProductId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getImageUrl(),
+                product.getCategory() != null ? product.getCategory().getCategoryId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+}
@@ -0,0 +1,461 @@
+package com.cliqshop.search;
+
+import com.cliqshop.dto.ProductSummaryDto;
+import com.cliqshop.event.CategoryChangedEvent;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import com.cliqshop.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, description and category name.
+ *
+ * Each indexed product gets an int ordinal; a term maps to a posting list of
+ * ordinals (ascending) plus a byte of field flags saying where the term occurred.
+ * Updates never rewrite postings in place: the old ordinal is tombstoned and the
+ * product is appended under a fresh one, and tombstones are compacted away once
+ * they outnumber live documents. Queries match every token as a prefix, with exact
+ * token matches and name matches ranked highest.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final byte FIELD_NAME = 1;
+    private static final byte FIELD_CATEGORY = 2;
+    private static final byte FIELD_DESCRIPTION = 4;
+
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MIN_TOMBSTONES_FOR_COMPACTION = 10_000;
+
+    private static final Comparator<Hit> RANKING = Comparator
+            .comparingDouble((Hit hit) -> hit.score).reversed()
+            .thenComparingInt(hit -> hit.product.nameLength)
+            .thenComparingLong(hit -> hit.product.summary.getProductId());
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    private final List<IndexedProduct> documents = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Set<Long> changedDuringLoad = new HashSet<>();
+    private int tombstones;
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        loading = true;
+        Long afterId = 0L;
+        List<ProductSearchDocument> batch;
+        do {
+            batch = productRepository.findSearchDocumentsAfterId(afterId, Limit.of(LOAD_BATCH_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (ProductSearchDocument document : batch) {
+                    // A write that raced the load is newer than the row read here
+                    if (!changedDuringLoad.contains(document.getProductId())) {
+                        indexLocked(document);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getProductId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            changedDuringLoad.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index loaded {} products with {} terms in {} ms",
+                size(), terms.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getAction() == ProductChangedEvent.Action.DELETED) {
+            remove(event.getProductId());
+        } else {
+            index(ProductSearchDocument.from(event.getProduct()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.getAction() == CategoryChangedEvent.Action.DELETED) {
+            removeCategory(event.getCategoryId());
+        } else if (event.getAction() == CategoryChangedEvent.Action.UPDATED) {
+            renameCategory(event.getCategoryId(), event.getCategory().getName());
+        }
+    }
+
+    public void index(ProductSearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedDuringLoad.add(document.getProductId());
+            }
+            indexLocked(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedDuringLoad.add(productId);
+            }
+            removeLocked(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void renameCategory(Long categoryId, String categoryName) {
+        lock.writeLock().lock();
+        try {
+            for (IndexedProduct product : liveProductsInCategory(categoryId)) {
+                ProductSummaryDto previous = product.summary;
+                ProductSummaryDto summary = new ProductSummaryDto(previous.getProductId(), previous.getName(),
+                        previous.getPrice(), previous.getImageUrl(), categoryId, categoryName);
+                Map<String, Byte> fields = new HashMap<>();
+                for (int i = 0; i < product.terms.length; i++) {
+                    byte flags = (byte) (product.fields[i] & ~FIELD_CATEGORY);
+                    if (flags != 0) {
+                        fields.put(product.terms[i], flags);
+                    }
+                }
+                addField(fields, SearchTokenizer.tokenize(categoryName), FIELD_CATEGORY);
+                removeLocked(summary.getProductId());
+                appendLocked(summary, categoryId, fields);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            for (IndexedProduct product : liveProductsInCategory(categoryId)) {
+                removeLocked(product.summary.getProductId());
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} products matching every token of the query,
+     * best match first. Each token matches indexed terms it is a prefix of.
+     */
+    public List<ProductSummaryDto> search(String query, int limit) {
+        List<String> queryTokens = new ArrayList<>(SearchTokenizer.tokenize(query));
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<List<Expansion>> expansions = new ArrayList<>(queryTokens.size());
+            int driver = 0;
+            int driverSize = Integer.MAX_VALUE;
+            for (String token : queryTokens) {
+                List<Expansion> tokenExpansions = expand(token);
+                if (tokenExpansions.isEmpty()) {
+                    return List.of();
+                }
+                int size = tokenExpansions.stream().mapToInt(e -> e.postings.size).sum();
+                if (size < driverSize) {
+                    driverSize = size;
+                    driver = expansions.size();
+                }
+                expansions.add(tokenExpansions);
+            }
+
+            // Score candidates from the most selective token, then probe the others
+            Map<Integer, Float> candidates = new HashMap<>();
+            for (Expansion expansion : expansions.get(driver)) {
+                PostingList postings = expansion.postings;
+                for (int i = 0; i < postings.size; i++) {
+                    int ordinal = postings.ordinals[i];
+                    if (documents.get(ordinal) != null) {
+                        candidates.merge(ordinal, weight(postings.fields[i]) * expansion.factor, Math::max);
+                    }
+                }
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (Map.Entry<Integer, Float> candidate : candidates.entrySet()) {
+                int ordinal = candidate.getKey();
+                float score = candidate.getValue();
+                for (int t = 0; t < expansions.size() && score > 0; t++) {
+                    if (t != driver) {
+                        float best = bestScore(expansions.get(t), ordinal);
+                        score = best > 0 ? score + best : 0;
+                    }
+                }
+                if (score > 0) {
+                    top.add(new Hit(documents.get(ordinal), score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANKING);
+            List<ProductSummaryDto> results = new ArrayList<>(hits.size());
+            for (Hit hit : hits) {
+                results.add(hit.product.summary);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Expansion> expand(String token) {
+        List<Expansion> expansions = new ArrayList<>();
+        for (Map.Entry<String, PostingList> entry : terms.tailMap(token, true).entrySet()) {
+            String term = entry.getKey();
+            if (!term.startsWith(token) || expansions.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            // Exact matches score fully; prefix matches score less the more of the term is missing
+            float factor = term.length() == token.length()
+                    ? 1.0f
+                    : 0.5f + 0.4f * token.length() / term.length();
+            expansions.add(new Expansion(entry.getValue(), factor));
+        }
+        return expansions;
+    }
+
+    private float bestScore(List<Expansion> expansions, int ordinal) {
+        float best = 0;
+        for (Expansion expansion : expansions) {
+            PostingList postings = expansion.postings;
+            int index = Arrays.binarySearch(postings.ordinals, 0, postings.size, ordinal);
+            if (index >= 0) {
+                best = Math.max(best, weight(postings.fields[index]) * expansion.factor);
+            }
+        }
+        return best;
+    }
+
+    private static float weight(byte fields) {
+        float weight = 0;
+        if ((fields & FIELD_NAME) != 0) {
+            weight += 3.0f;
+        }
+        if ((fields & FIELD_CATEGORY) != 0) {
+            weight += 1.5f;
+        }
+        if ((fields & FIELD_DESCRIPTION) != 0) {
+            weight += 1.0f;
+        }
+        return weight;
+    }
+
+    private void indexLocked(ProductSearchDocument document) {
+        removeLocked(document.getProductId());
+
+        Map<String, Byte> fields = new HashMap<>();
+        addField(fields, SearchTokenizer.tokenize(document.getName()), FIELD_NAME);
+        addField(fields, SearchTokenizer.tokenize(document.getCategoryName()), FIELD_CATEGORY);
+        addField(fields, SearchTokenizer.tokenize(document.getDescription()), FIELD_DESCRIPTION);
+
+        ProductSummaryDto summary = new ProductSummaryDto(document.getProductId(), document.getName(),
+                document.getPrice(), document.getImageUrl(), document.getCategoryId(), document.getCategoryName());
+        appendLocked(summary, document.getCategoryId(), fields);
+        compactIfNeeded();
+    }
+
+    private static void addField(Map<String, Byte> fields, Set<String> tokens, byte field) {
+        for (String token : tokens) {
+            fields.merge(token, field, (a, b) -> (byte) (a | b));
+        }
+    }
+
+    private void appendLocked(ProductSummaryDto summary, Long categoryId, Map<String, Byte> fields) {
+        int ordinal = documents.size();
+        String[] docTerms = new String[fields.size()];
+        byte[] docFields = new byte[fields.size()];
+        int i = 0;
+        for (Map.Entry<String, Byte> entry : fields.entrySet()) {
+            PostingList postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new PostingList();
+                terms.put(entry.getKey(), postings);
+            }
+            postings.append(ordinal, entry.getValue());
+            // Keep the dictionary's String instance so the forward index costs only a reference
+            docTerms[i] = terms.ceilingKey(entry.getKey());
+            docFields[i] = entry.getValue();
+            i++;
+        }
+        documents.add(new IndexedProduct(summary, categoryId, docTerms, docFields));
+        ordinals.put(summary.getProductId(), ordinal);
+    }
+
+    private void removeLocked(Long productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal != null) {
+            documents.set(ordinal, null);
+            tombstones++;
+        }
+    }
+
+    private List<IndexedProduct> liveProductsInCategory(Long categoryId) {
+        List<IndexedProduct> matches = new ArrayList<>();
+        for (IndexedProduct product : documents) {
+            if (product != null && categoryId.equals(product.categoryId)) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    private void compactIfNeeded() {
+        if (tombstones < MIN_TOMBSTONES_FOR_COMPACTION || tombstones < ordinals.size()) {
+            return;
+        }
+        int[] remap = new int[documents.size()];
+        List<IndexedProduct> live = new ArrayList<>(ordinals.size());
+        for (int old = 0; old < documents.size(); old++) {
+            IndexedProduct product = documents.get(old);
+            if (product == null) {
+                remap[old] = -1;
+            } else {
+                remap[old] = live.size();
+                ordinals.put(product.summary.getProductId(), live.size());
+                live.add(product);
+            }
+        }
+        terms.values().removeIf(postings -> postings.remap(remap) == 0);
+        documents.clear();
+        documents.addAll(live);
+        tombstones = 0;
+    }
+
+    private static final class PostingList {
+        private int[] ordinals = new int[2];
+        private byte[] fields = new byte[2];
+        private int size;
+
+        private void append(int ordinal, byte field) {
+            if (size == ordinals.length) {
+                int capacity = size + (size >> 1) + 1;
+                ordinals = Arrays.copyOf(ordinals, capacity);
+                fields = Arrays.copyOf(fields, capacity);
+            }
+            ordinals[size] = ordinal;
+            fields[size] = field;
+            size++;
+        }
+
+        // Ordinal order is preserved by the remap, so the list stays sorted
+        private int remap(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int mapped = remap[ordinals[i]];
+                if (mapped >= 0) {
+                    ordinals[kept] = mapped;
+                    fields[kept] = fields[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final ProductSummaryDto summary;
+        private final Long categoryId;
+        private final String[] terms;
+        private final byte[] fields;
+        private final int nameLength;
+
+        private IndexedProduct(ProductSummaryDto summary, Long categoryId, String[] terms, byte[] fields) {
+            this.summary = summary;
+            this.categoryId = categoryId;
+            this.terms = terms;
+            this.fields = fields;
+            this.nameLength = summary.getName() != null ? summary.getName().length() : 0;
+        }
+    }
+
+    private static final class Expansion {
+        private final PostingList postings;
+        private final float factor;
+
+        private Expansion(PostingList postings, float factor) {
+            this.postings = postings;
+            this.factor = factor;
+        }
+    }
+
+    private static final class Hit {
+        private final IndexedProduct product;
+        private final float score;
+
+        private Hit(IndexedProduct product, float score) {
+            this.product = product;
+            this.score = score;
+        }
+    }
+}
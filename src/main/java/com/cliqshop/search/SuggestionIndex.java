@@ -0,0 +1,564 @@
+package com.cliqshop.search;
+
+import com.cliqshop.dto.SuggestionDto;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Product;
+import com.cliqshop.event.CategoryChangedEvent;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import com.cliqshop.repository.CategoryRepository;
+import com.cliqshop.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead completions for product and category names, held in a radix trie
+ * keyed by the normalized name. Every node stores the ids of the best
+ * {@value #TOP_K} suggestions below it, so answering a prefix is a walk down
+ * the trie with no scoring at request time. A write re-derives the top-k lists
+ * bottom-up along the single path it touched.
+ *
+ * Category suggestions are weighted by how many products they hold; product
+ * suggestions by how many products share the name.
+ */
+@Component
+public class SuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionIndex.class);
+
+    public static final int TOP_K = 10;
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+    private static final long[] NO_REFS = new long[0];
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node(NO_CHARS);
+    private final List<Suggestion> suggestions = new ArrayList<>();
+    private final List<Integer> freeIds = new ArrayList<>();
+    private final Map<String, Integer> productSuggestionByKey = new HashMap<>();
+    private final Map<Long, Integer> categorySuggestionById = new HashMap<>();
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    private final Set<Long> changedDuringLoad = new HashSet<>();
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        loading = true;
+        for (Category category : categoryRepository.findAll()) {
+            upsertCategory(category.getCategoryId(), category.getName());
+        }
+        Long afterId = 0L;
+        List<ProductSearchDocument> batch;
+        do {
+            batch = productRepository.findSearchDocumentsAfterId(afterId, Limit.of(LOAD_BATCH_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (ProductSearchDocument document : batch) {
+                    if (!changedDuringLoad.contains(document.getProductId())) {
+                        indexProductLocked(document.getProductId(), document.getName(),
+                                document.getCategoryId(), document.getCategoryName());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getProductId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            changedDuringLoad.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Suggestion index loaded {} products in {} ms",
+                products.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getAction() == ProductChangedEvent.Action.DELETED) {
+            removeProduct(event.getProductId());
+        } else {
+            Product product = event.getProduct();
+            indexProduct(product.getProductId(), product.getName(),
+                    product.getCategory().getCategoryId(), product.getCategory().getName());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.getAction() == CategoryChangedEvent.Action.DELETED) {
+            removeCategory(event.getCategoryId());
+        } else {
+            upsertCategory(event.getCategoryId(), event.getCategory().getName());
+        }
+    }
+
+    public void indexProduct(Long productId, String name, Long categoryId, String categoryName) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedDuringLoad.add(productId);
+            }
+            indexProductLocked(productId, name, categoryId, categoryName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeProduct(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedDuringLoad.add(productId);
+            }
+            removeProductLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsertCategory(Long categoryId, String name) {
+        lock.writeLock().lock();
+        try {
+            upsertCategoryLocked(categoryId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            // Deleting a category cascades to its products
+            List<Long> cascaded = new ArrayList<>();
+            for (Map.Entry<Long, IndexedProduct> entry : products.entrySet()) {
+                if (categoryId.equals(entry.getValue().categoryId)) {
+                    cascaded.add(entry.getKey());
+                }
+            }
+            for (Long productId : cascaded) {
+                removeProductLocked(productId);
+            }
+            Integer id = categorySuggestionById.remove(categoryId);
+            if (id != null) {
+                deleteSuggestion(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} (at most {@value #TOP_K}) completions of the prefix, best first.
+     */
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String key = normalizeKey(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int position = 0;
+            while (position < key.length()) {
+                int index = node.childIndex(key.charAt(position));
+                if (index < 0) {
+                    return List.of();
+                }
+                Node child = node.children[index];
+                int matched = commonPrefix(child.label, key, position);
+                if (matched < child.label.length && position + matched < key.length()) {
+                    return List.of();
+                }
+                position += matched;
+                node = child;
+            }
+
+            List<SuggestionDto> results = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int i = 0; i < node.top.length && results.size() < limit; i++) {
+                Suggestion suggestion = suggestions.get(node.top[i]);
+                Long refId = suggestion.refIds.length == 1 ? suggestion.refIds[0] : null;
+                results.add(new SuggestionDto(suggestion.text, suggestion.category ? "CATEGORY" : "PRODUCT", refId));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normalizes text the way trie keys are built: folded tokens joined by single spaces.
+     * A trailing separator in the input is kept so "apple " does not complete to "apples".
+     */
+    public static String normalizeKey(String text) {
+        Set<String> tokens = SearchTokenizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return "";
+        }
+        String key = String.join(" ", tokens);
+        boolean trailingSeparator = !Character.isLetterOrDigit(text.charAt(text.length() - 1));
+        return trailingSeparator ? key + " " : key;
+    }
+
+    private void indexProductLocked(Long productId, String name, Long categoryId, String categoryName) {
+        removeProductLocked(productId);
+
+        if (categoryId != null && !categorySuggestionById.containsKey(categoryId) && categoryName != null) {
+            upsertCategoryLocked(categoryId, categoryName);
+        }
+        String key = String.join(" ", SearchTokenizer.tokenize(name));
+        products.put(productId, new IndexedProduct(key, categoryId));
+
+        if (!key.isEmpty()) {
+            Integer id = productSuggestionByKey.get(key);
+            if (id == null) {
+                id = newSuggestion(new Suggestion(name, key, false, new long[]{productId}, 1));
+                productSuggestionByKey.put(key, id);
+                insertKey(key, id);
+            } else {
+                Suggestion suggestion = suggestions.get(id);
+                suggestion.refIds = Arrays.copyOf(suggestion.refIds, suggestion.refIds.length + 1);
+                suggestion.refIds[suggestion.refIds.length - 1] = productId;
+                suggestion.weight = suggestion.refIds.length;
+                refresh(key);
+            }
+        }
+        adjustCategoryWeight(categoryId, 1);
+    }
+
+    private void removeProductLocked(Long productId) {
+        IndexedProduct product = products.remove(productId);
+        if (product == null) {
+            return;
+        }
+        Integer id = productSuggestionByKey.get(product.key);
+        if (id != null) {
+            Suggestion suggestion = suggestions.get(id);
+            long[] remaining = Arrays.stream(suggestion.refIds).filter(ref -> ref != productId).toArray();
+            if (remaining.length == 0) {
+                productSuggestionByKey.remove(product.key);
+                deleteSuggestion(id);
+            } else {
+                suggestion.refIds = remaining;
+                suggestion.weight = remaining.length;
+                refresh(product.key);
+            }
+        }
+        adjustCategoryWeight(product.categoryId, -1);
+    }
+
+    private void upsertCategoryLocked(Long categoryId, String name) {
+        String key = String.join(" ", SearchTokenizer.tokenize(name));
+        Integer id = categorySuggestionById.get(categoryId);
+        if (id != null) {
+            Suggestion existing = suggestions.get(id);
+            if (existing.key.equals(key)) {
+                existing.text = name;
+                return;
+            }
+            int weight = existing.weight;
+            deleteSuggestion(id);
+            categorySuggestionById.remove(categoryId);
+            if (!key.isEmpty()) {
+                id = newSuggestion(new Suggestion(name, key, true, new long[]{categoryId}, weight));
+                categorySuggestionById.put(categoryId, id);
+                insertKey(key, id);
+            }
+        } else if (!key.isEmpty()) {
+            id = newSuggestion(new Suggestion(name, key, true, new long[]{categoryId}, 0));
+            categorySuggestionById.put(categoryId, id);
+            insertKey(key, id);
+        }
+    }
+
+    private void adjustCategoryWeight(Long categoryId, int delta) {
+        Integer id = categoryId != null ? categorySuggestionById.get(categoryId) : null;
+        if (id != null) {
+            Suggestion suggestion = suggestions.get(id);
+            suggestion.weight = Math.max(0, suggestion.weight + delta);
+            refresh(suggestion.key);
+        }
+    }
+
+    private int newSuggestion(Suggestion suggestion) {
+        if (!freeIds.isEmpty()) {
+            int id = freeIds.remove(freeIds.size() - 1);
+            suggestions.set(id, suggestion);
+            return id;
+        }
+        suggestions.add(suggestion);
+        return suggestions.size() - 1;
+    }
+
+    private void deleteSuggestion(int id) {
+        removeKey(suggestions.get(id).key, id);
+        suggestions.set(id, null);
+        freeIds.add(id);
+    }
+
+    private void insertKey(String key, int id) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(position).toCharArray());
+                node.addChild(leaf);
+                path.add(leaf);
+                node = leaf;
+                break;
+            }
+            Node child = node.children[index];
+            int matched = commonPrefix(child.label, key, position);
+            if (matched < child.label.length) {
+                // Split the edge where the new key diverges
+                Node split = new Node(Arrays.copyOf(child.label, matched));
+                child.label = Arrays.copyOfRange(child.label, matched, child.label.length);
+                split.addChild(child);
+                node.children[index] = split;
+                child = split;
+            }
+            path.add(child);
+            node = child;
+            position += matched;
+        }
+        node.terminals = append(node.terminals, id);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            recomputeTop(path.get(i));
+        }
+    }
+
+    private void removeKey(String key, int id) {
+        List<Node> path = findPath(key);
+        if (path == null) {
+            return;
+        }
+        Node last = path.get(path.size() - 1);
+        last.terminals = Arrays.stream(last.terminals).filter(terminal -> terminal != id).toArray();
+
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            Node parent = path.get(i - 1);
+            if (node.terminals.length == 0 && node.children.length == 0) {
+                parent.removeChild(node);
+            } else if (node.terminals.length == 0 && node.children.length == 1) {
+                // Re-compress the edge now that the branch point is gone
+                Node onlyChild = node.children[0];
+                char[] merged = Arrays.copyOf(node.label, node.label.length + onlyChild.label.length);
+                System.arraycopy(onlyChild.label, 0, merged, node.label.length, onlyChild.label.length);
+                onlyChild.label = merged;
+                parent.children[parent.childIndex(merged[0])] = onlyChild;
+            } else {
+                recomputeTop(node);
+            }
+        }
+        recomputeTop(root);
+    }
+
+    private void refresh(String key) {
+        List<Node> path = findPath(key);
+        if (path != null) {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                recomputeTop(path.get(i));
+            }
+        }
+    }
+
+    private List<Node> findPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            if (commonPrefix(node.label, key, position) != node.label.length) {
+                return null;
+            }
+            position += node.label.length;
+            path.add(node);
+        }
+        return path;
+    }
+
+    // A node's top-k is drawn from its own terminals and its children's top-k lists.
+    // Runs on every write along the touched path, so it keeps a bounded sorted array
+    // instead of collecting and sorting all candidates.
+    private void recomputeTop(Node node) {
+        int[] top = new int[TOP_K];
+        int size = 0;
+        for (int id : node.terminals) {
+            size = offer(top, size, id);
+        }
+        for (Node child : node.children) {
+            for (int id : child.top) {
+                if (size == TOP_K && !outranks(id, top[TOP_K - 1])) {
+                    // Child lists are ranked, so nothing further in this one can place
+                    break;
+                }
+                size = offer(top, size, id);
+            }
+        }
+        node.top = size == TOP_K ? top : Arrays.copyOf(top, size);
+    }
+
+    // Inserts id into the ranked prefix top[0..size), dropping the last entry when full
+    private int offer(int[] top, int size, int id) {
+        if (size == TOP_K && !outranks(id, top[TOP_K - 1])) {
+            return size;
+        }
+        int position = size == TOP_K ? TOP_K - 1 : size;
+        while (position > 0 && outranks(id, top[position - 1])) {
+            top[position] = top[position - 1];
+            position--;
+        }
+        top[position] = id;
+        return size == TOP_K ? size : size + 1;
+    }
+
+    // Heavier first, then categories before products, then shorter keys, then alphabetical
+    private boolean outranks(int a, int b) {
+        Suggestion first = suggestions.get(a);
+        Suggestion second = suggestions.get(b);
+        if (first.weight != second.weight) {
+            return first.weight > second.weight;
+        }
+        if (first.category != second.category) {
+            return first.category;
+        }
+        if (first.key.length() != second.key.length()) {
+            return first.key.length() < second.key.length();
+        }
+        return first.key.compareTo(second.key) < 0;
+    }
+
+    private static int commonPrefix(char[] label, String key, int offset) {
+        int max = Math.min(label.length, key.length() - offset);
+        int i = 0;
+        while (i < max && label[i] == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int[] append(int[] ids, int id) {
+        int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = id;
+        return grown;
+    }
+
+    private static final class Node {
+        private char[] label;
+        private char[] childKeys = NO_CHARS;
+        private Node[] children = NO_CHILDREN;
+        private int[] terminals = NO_IDS;
+        private int[] top = NO_IDS;
+
+        private Node(char[] label) {
+            this.label = label;
+        }
+
+        private int childIndex(char c) {
+            return Arrays.binarySearch(childKeys, c);
+        }
+
+        private void addChild(Node child) {
+            int insertAt = -childIndex(child.label[0]) - 1;
+            char[] keys = new char[childKeys.length + 1];
+            Node[] nodes = new Node[children.length + 1];
+            System.arraycopy(childKeys, 0, keys, 0, insertAt);
+            System.arraycopy(children, 0, nodes, 0, insertAt);
+            keys[insertAt] = child.label[0];
+            nodes[insertAt] = child;
+            System.arraycopy(childKeys, insertAt, keys, insertAt + 1, childKeys.length - insertAt);
+            System.arraycopy(children, insertAt, nodes, insertAt + 1, children.length - insertAt);
+            childKeys = keys;
+            children = nodes;
+        }
+
+        private void removeChild(Node child) {
+            int index = childIndex(child.label[0]);
+            char[] keys = new char[childKeys.length - 1];
+            Node[] nodes = new Node[children.length - 1];
+            System.arraycopy(childKeys, 0, keys, 0, index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            System.arraycopy(childKeys, index + 1, keys, index, keys.length - index);
+            System.arraycopy(children, index + 1, nodes, index, nodes.length - index);
+            childKeys = keys;
+            children = nodes;
+        }
+    }
+
+    private static final class Suggestion {
+        private String text;
+        private final String key;
+        private final boolean category;
+        private long[] refIds = NO_REFS;
+        private int weight;
+
+        private Suggestion(String text, String key, boolean category, long[] refIds, int weight) {
+            this.text = text;
+            this.key = key;
+            this.category = category;
+            this.refIds = refIds;
+            this.weight = weight;
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final String key;
+        private final Long categoryId;
+
+        private IndexedProduct(String key, Long categoryId) {
+            this.key = key;
+            this.categoryId = categoryId;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.cliqshop.service;
+
+import com.cliqshop.cart.IdleCart;
+import com.cliqshop.event.CartsSweptEvent;
+import com.cliqshop.repository.CartRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes carts nobody has changed for {@code cart.sweeper.idle-ttl}. Each run
+ * walks the idle carts in (updated_at, cart_id) order, a keyset over
+ * idx_carts_updated_at_id, and deletes them a bounded batch per transaction
+ * with a pause in between, so no run holds locks for long or produces one
+ * large replication event. Carts from before the updated_at column get a
+ * timestamp on their first run and age out from there.
+ *
+ * A user whose cart was swept gets an empty cart back; the next add creates
+ * a new one.
+ */
+@Service
+public class AbandonedCartSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+
+    // Keyset start: older than any updated_at the application writes
+    private static final LocalDateTime BEFORE_ALL = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${cart.sweeper.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cart.sweeper.idle-ttl:30d}")
+    private Duration idleTtl;
+
+    @Value("${cart.sweeper.interval:1h}")
+    private Duration interval;
+
+    @Value("${cart.sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cart.sweeper.pause:200ms}")
+    private Duration pause;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService sweepExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "abandoned-cart-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong cartsScanned = new AtomicLong();
+    private final AtomicLong cartsDeleted = new AtomicLong();
+    private final AtomicLong itemsDeleted = new AtomicLong();
+    private final AtomicLong cartsBackfilled = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMillis;
+
+    public AbandonedCartSweeper(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            long millis = interval.toMillis();
+            sweepExecutor.scheduleWithFixedDelay(this::sweepSafely, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+    }
+
+    /**
+     * One sweep; returns the number of carts deleted. Runs on the sweeper
+     * thread, but may be called directly, e.g. from tests.
+     */
+    public long sweep() {
+        long started = System.nanoTime();
+        backfillUpdatedAt();
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleTtl);
+        LocalDateTime afterUpdatedAt = BEFORE_ALL;
+        Long afterId = 0L;
+        long deleted = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<IdleCart> batch = cartRepository.findIdleAfter(cutoff, afterUpdatedAt, afterId, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            cartsScanned.addAndGet(batch.size());
+            List<Long> cartIds = batch.stream().map(IdleCart::getCartId).collect(Collectors.toList());
+            deleted += transactionTemplate.execute(status -> {
+                itemsDeleted.addAndGet(cartRepository.deleteIdleItems(cartIds, cutoff));
+                return (long) cartRepository.deleteIdle(cartIds, cutoff);
+            });
+            eventPublisher.publishEvent(new CartsSweptEvent(
+                    batch.stream().map(IdleCart::getUserId).collect(Collectors.toList())));
+
+            IdleCart last = batch.get(batch.size() - 1);
+            afterUpdatedAt = last.getUpdatedAt();
+            afterId = last.getCartId();
+            if (batch.size() < batchSize) {
+                break;
+            }
+            pause();
+        }
+        cartsDeleted.addAndGet(deleted);
+        runs.incrementAndGet();
+        lastRunAt = LocalDateTime.now();
+        lastRunMillis = (System.nanoTime() - started) / 1_000_000;
+        if (deleted > 0) {
+            logger.info("Swept {} carts idle since before {} in {} ms", deleted, cutoff, lastRunMillis);
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("idleTtl", idleTtl.toString());
+        stats.put("runs", runs.get());
+        stats.put("cartsScanned", cartsScanned.get());
+        stats.put("cartsDeleted", cartsDeleted.get());
+        stats.put("itemsDeleted", itemsDeleted.get());
+        stats.put("cartsBackfilled", cartsBackfilled.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        return stats;
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            logger.error("Abandoned-cart sweep failed: {}", e.getMessage());
+        }
+    }
+
+    // Starts the idle clock for carts written before updated_at existed, in the same bounded batches
+    private void backfillUpdatedAt() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> cartIds = cartRepository.findIdsWithoutUpdatedAt(Limit.of(batchSize));
+            if (cartIds.isEmpty()) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            cartsBackfilled.addAndGet(transactionTemplate.execute(status -> cartRepository.setUpdatedAt(cartIds, now)));
+            if (cartIds.size() < batchSize) {
+                return;
+            }
+            pause();
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
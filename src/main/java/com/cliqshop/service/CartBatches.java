@@ -0,0 +1,70 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.CartBatchRequest.CartOperation;
+import com.cliqshop.dto.CartBatchRequest.OperationType;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.exception.ResourceNotFoundException;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validation and product resolution shared by the cart services' batch
+ * operation, so both cart modes accept exactly the same batches.
+ */
+final class CartBatches {
+
+    static final int MAX_OPERATIONS = 100;
+
+    private CartBatches() {
+    }
+
+    /**
+     * Rejects the whole batch before anything is applied, so a bad operation
+     * late in the list never leaves the earlier ones half done.
+     */
+    static void validate(List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new InvalidRequestException("A cart batch needs at least one operation");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new InvalidRequestException("A cart batch may have at most " + MAX_OPERATIONS + " operations");
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            CartOperation operation = operations.get(i);
+            if (operation == null || operation.getType() == null || operation.getProductId() == null) {
+                throw new InvalidRequestException("Operation " + i + " needs a type and a productId");
+            }
+            if (operation.getType() != OperationType.REMOVE && operation.getQuantity() <= 0) {
+                throw new InvalidRequestException("Operation " + i + " needs a positive quantity");
+            }
+        }
+    }
+
+    static boolean hasAdd(List<CartOperation> operations) {
+        return operations.stream().anyMatch(operation -> operation.getType() == OperationType.ADD);
+    }
+
+    /**
+     * Resolves every product the batch adds through the product cache, loading
+     * any misses together.
+     */
+    static Map<Long, Product> productsToAdd(List<CartOperation> operations, ProductService productService) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation.getType() == OperationType.ADD) {
+                productIds.add(operation.getProductId());
+            }
+        }
+        Map<Long, Product> products = productService.findAllById(productIds);
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new ResourceNotFoundException("Product not found with id: " + productId);
+            }
+        }
+        return products;
+    }
+}
@@ -1,5 +1,6 @@
 package com.cliqshop.service;
 
+import com.cliqshop.dto.CartBatchRequest;
 import com.cliqshop.dto.CartDto;
 import com.cliqshop.dto.CartItemDto;
 
@@ -11,4 +12,6 @@ public interface CartService {
     CartDto removeCartItem(Long userId, Long productId);
     CartDto updateCartItemQuantity(Long userId, Long productId, int quantity);
     void clearCart(Long userId);
+    // Applies the operations in order as one change to the cart; all or nothing
+    CartDto applyBatch(Long userId, List<CartBatchRequest.CartOperation> operations);
 }
\ No newline at end of file
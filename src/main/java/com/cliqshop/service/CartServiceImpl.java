@@ -1,24 +1,46 @@
 package com.cliqshop.service;
 
+import com.cliqshop.dto.CartBatchRequest.CartOperation;
 import com.cliqshop.dto.CartDto;
 import com.cliqshop.dto.CartItemDto;
 import com.cliqshop.entity.*;
+import com.cliqshop.exception.ConflictException;
 import com.cliqshop.exception.ResourceNotFoundException;
 import com.cliqshop.repository.CartRepository;
-import com.cliqshop.repository.ProductRepository;
 import com.cliqshop.repository.UserRepository;
 import com.cliqshop.service.CartService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class CartServiceImpl implements CartService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CartServiceImpl.class);
+
+    private static final String CART_KEY = "uk_carts_user";
+    private static final String CART_LINE_KEY = "uk_cart_items_cart_product";
+
     @Autowired
     private CartRepository cartRepository;
 
@@ -26,102 +48,186 @@ public class CartServiceImpl implements CartService {
     private UserRepository userRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductService productService;
+
+    @Value("${cart.max-attempts:4}")
+    private int maxAttempts;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public CartServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
+    @Transactional(readOnly = true)
     public CartDto getCartByUserId(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        Cart cart = cartRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user id: " + userId));
+        Cart cart = cartRepository.findWithItemsByUserId(userId).orElse(null);
+        if (cart == null) {
+            // Carts are created by the first add and deleted once abandoned; either way the cart is empty
+            if (!userRepository.existsById(userId)) {
+                throw new ResourceNotFoundException("User not found with id: " + userId);
+            }
+            return emptyCart(userId);
+        }
 
         return convertToDto(cart);
     }
 
     @Override
-    @Transactional
     public CartDto addToCart(Long userId, Long productId, int quantity) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        Product product = productRepository.findById(productId)
+        // Served from the product cache, so only the cart costs a query
+        Product product = productService.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
 
-        Cart cart = cartRepository.findByUser(user)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart(user);
-                    return cartRepository.save(newCart);
-                });
+        return withRetry(() -> {
+            Cart cart = findOrCreateCart(userId);
 
-        // Check if product already exists in cart
-        CartItem existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getProductId().equals(productId))
-                .findFirst()
-                .orElse(null);
-
-        if (existingItem != null) {
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-        } else {
-            CartItem newItem = new CartItem(cart, product, quantity);
-            cart.getItems().add(newItem);
-        }
-
-        cart.calculateTotalPrice();
-        cartRepository.save(cart);
+            // Merges into an existing line and adjusts the running total by that line alone
+            cart.addItem(product, quantity);
+            cartRepository.save(cart);
 
-        return convertToDto(cart);
+            return convertToDto(cart);
+        });
     }
 
     @Override
-    @Transactional
     public CartDto removeCartItem(Long userId, Long productId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        return withRetry(() -> {
+            Cart cart = findCart(userId);
 
-        Cart cart = cartRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user id: " + userId));
-
-        cart.getItems().removeIf(item -> item.getProduct().getProductId().equals(productId));
-        cart.calculateTotalPrice();
-        cartRepository.save(cart);
+            if (cart.removeItem(productId)) {
+                cartRepository.save(cart);
+            }
 
-        return convertToDto(cart);
+            return convertToDto(cart);
+        });
     }
 
     @Override
-    @Transactional
     public CartDto updateCartItemQuantity(Long userId, Long productId, int quantity) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        return withRetry(() -> {
+            Cart cart = findCart(userId);
 
-        Cart cart = cartRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user id: " + userId));
-
-        cart.getItems().stream()
-                .filter(item -> item.getProduct().getProductId().equals(productId))
-                .findFirst()
-                .ifPresent(item -> {
-                    item.setQuantity(quantity);
-                    cart.calculateTotalPrice();
-                    cartRepository.save(cart);
-                });
+            if (cart.updateItemQuantity(productId, quantity) != null) {
+                cartRepository.save(cart);
+            }
 
-        return convertToDto(cart);
+            return convertToDto(cart);
+        });
     }
 
     @Override
-    @Transactional
     public void clearCart(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        withRetry(() -> {
+            Cart cart = findCart(userId);
 
-        Cart cart = cartRepository.findByUser(user)
+            cart.clearItems();
+            cartRepository.save(cart);
+            return null;
+        });
+    }
+
+    @Override
+    public CartDto applyBatch(Long userId, List<CartOperation> operations) {
+        CartBatches.validate(operations);
+        Map<Long, Product> products = CartBatches.productsToAdd(operations, productService);
+
+        return withRetry(() -> {
+            Cart cart = CartBatches.hasAdd(operations) ? findOrCreateCart(userId) : findCart(userId);
+
+            // Each operation adjusts the running total by its own line, like the single-item endpoints
+            Set<Long> removed = new HashSet<>();
+            for (CartOperation operation : operations) {
+                Long productId = operation.getProductId();
+                switch (operation.getType()) {
+                    case ADD -> {
+                        if (removed.remove(productId)) {
+                            // Hibernate inserts before it deletes, so the removed line must be gone
+                            // before its product can be added back under the unique constraint
+                            cartRepository.flush();
+                        }
+                        cart.addItem(products.get(productId), operation.getQuantity());
+                    }
+                    case UPDATE -> cart.updateItemQuantity(productId, operation.getQuantity());
+                    case REMOVE -> {
+                        if (cart.removeItem(productId)) {
+                            removed.add(productId);
+                        }
+                    }
+                }
+            }
+            cartRepository.save(cart);
+
+            return convertToDto(cart);
+        });
+    }
+
+    /**
+     * Runs a cart mutation in its own transaction and retries it when a
+     * concurrent change to the same cart wins: a stale version, or a
+     * duplicate line or cart from a concurrent first add. Other integrity
+     * violations are not conflicts and propagate unchanged. Each attempt
+     * re-reads the cart, so the losing change is re-applied on top of the
+     * winning one instead of overwriting it.
+     */
+    private <T> T withRetry(Supplier<T> mutation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Part of a caller's transaction, which has to be retried as a whole
+            return mutation.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> mutation.get());
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                if (e instanceof DataIntegrityViolationException violation && !isConcurrentInsert(violation)) {
+                    throw violation;
+                }
+                if (attempt >= maxAttempts) {
+                    logger.warn("Cart change gave up after {} conflicting attempts: {}", attempt, e.getMessage());
+                    throw new ConflictException("The cart was changed concurrently; please retry");
+                }
+            }
+        }
+    }
+
+    // Only a duplicate cart or line means another change got there first; any other violation is a real error
+    private static boolean isConcurrentInsert(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                if (violation.getKind() != ConstraintViolationException.ConstraintKind.UNIQUE) {
+                    return false;
+                }
+                // Drivers qualify or decorate the name (cart_items.uk_..., PUBLIC.UK_..._INDEX_1)
+                String constraint = Objects.toString(violation.getConstraintName(), "").toLowerCase(Locale.ROOT);
+                return constraint.contains(CART_KEY) || constraint.contains(CART_LINE_KEY);
+            }
+        }
+        return false;
+    }
+
+    private Cart findCart(Long userId) {
+        return cartRepository.findWithItemsByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user id: " + userId));
+    }
 
-        cart.getItems().clear();
-        cart.setTotalPrice(BigDecimal.ZERO);
-        cartRepository.save(cart);
+    private Cart findOrCreateCart(Long userId) {
+        return cartRepository.findWithItemsByUserId(userId)
+                .orElseGet(() -> {
+                    // Only a user's first add has to check that the user exists
+                    if (!userRepository.existsById(userId)) {
+                        throw new ResourceNotFoundException("User not found with id: " + userId);
+                    }
+                    return cartRepository.save(new Cart(userRepository.getReferenceById(userId)));
+                });
+    }
+
+    private CartDto emptyCart(Long userId) {
+        CartDto cartDto = new CartDto();
+        cartDto.setUserId(userId);
+        cartDto.setTotalPrice(BigDecimal.ZERO);
+        cartDto.setItems(new ArrayList<>());
+        return cartDto;
     }
 
     private CartDto convertToDto(Cart cart) {
@@ -139,14 +245,18 @@ public class CartServiceImpl implements CartService {
     }
 
     private CartItemDto convertToItemDto(CartItem item) {
+        if (item.getUnitPrice() == null) {
+            // Rows written before snapshots existed load their product once; a write path persists the backfill
+            item.snapshot(item.getProduct());
+        }
         CartItemDto dto = new CartItemDto();
         dto.setCartItemId(item.getCartItemId());
-        dto.setProductId(item.getProduct().getProductId());
-        dto.setProductName(item.getProduct().getName());
-        dto.setProductPrice(item.getProduct().getPrice());
-        dto.setProductImageUrl(item.getProduct().getImageUrl());
+        dto.setProductId(item.getProductId());
+        dto.setProductName(item.getProductName());
+        dto.setProductPrice(item.getUnitPrice());
+        dto.setProductImageUrl(item.getProductImageUrl());
         dto.setQuantity(item.getQuantity());
-        dto.setSubTotal(item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        dto.setSubTotal(item.getLineTotal());
         return dto;
     }
 }
\ No newline at end of file
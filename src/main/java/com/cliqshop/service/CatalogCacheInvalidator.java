@@ -0,0 +1,57 @@
+package com.cliqshop.service;
+
+import com.cliqshop.config.CacheConfig;
+import com.cliqshop.event.CategoryChangedEvent;
+import com.cliqshop.event.InventoryChangedEvent;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts exactly the catalog cache entries a committed write makes stale.
+ * Category listings embed their products and products embed their category
+ * and inventory, so each change fans out to the entries that include it.
+ */
+@Component
+public class CatalogCacheInvalidator {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        cache(CacheConfig.PRODUCTS).evict(event.getProductId());
+        cache(CacheConfig.CATEGORIES).clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        for (ProductChangedEvent change : event.getChanges()) {
+            cache(CacheConfig.PRODUCTS).evict(change.getProductId());
+        }
+        cache(CacheConfig.CATEGORIES).clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        cache(CacheConfig.PRODUCTS).evict(event.getProductId());
+        cache(CacheConfig.CATEGORIES).clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        cache(CacheConfig.CATEGORIES).clear();
+        if (event.getAction() != CategoryChangedEvent.Action.CREATED) {
+            // Every cached product of this category embeds the old category row
+            cache(CacheConfig.PRODUCTS).clear();
+        }
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+}
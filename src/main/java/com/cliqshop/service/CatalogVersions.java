@@ -0,0 +1,85 @@
+package com.cliqshop.service;
+
+import com.cliqshop.event.CategoryChangedEvent;
+import com.cliqshop.event.InventoryChangedEvent;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters behind the catalog ETags. Every catalog write already
+ * publishes a change event, so a tag can be computed from these counters
+ * without touching the database, and a matching If-None-Match is answered
+ * before any entity is loaded.
+ *
+ * <p>Counters live in memory, so each tag carries a per-boot nonce: a tag
+ * issued before a restart, or by another instance, never matches here. That
+ * is deliberate: caches and indexes are per instance too, so a tag only ever
+ * describes state this instance serves.
+ * Bumps run after the commit listeners that refresh caches and indexes have
+ * finished; controllers read the tag before building the body, so a body is
+ * never older than the tag it is sent with.
+ */
+@Component
+public class CatalogVersions {
+
+    private final String nonce = UUID.randomUUID().toString().substring(0, 8);
+
+    // Full entity payloads: products embed category and inventory, categories embed products
+    private final AtomicLong catalog = new AtomicLong();
+    // Summary payloads (paging, search, suggest) carry no stock data
+    private final AtomicLong listings = new AtomicLong();
+    private final AtomicLong categories = new AtomicLong();
+    // Entries are kept after a delete so an old tag can never come back into use
+    private final Map<Long, Long> products = new ConcurrentHashMap<>();
+
+    public String catalogTag() {
+        return tag("c" + catalog.get());
+    }
+
+    public String listingsTag() {
+        return tag("l" + listings.get());
+    }
+
+    public String productTag(Long productId) {
+        return tag("p" + productId + "." + products.getOrDefault(productId, 0L) + "." + categories.get());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        products.merge(event.getProductId(), 1L, Long::sum);
+        listings.incrementAndGet();
+        catalog.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        event.getChanges().forEach(change -> products.merge(change.getProductId(), 1L, Long::sum));
+        listings.incrementAndGet();
+        catalog.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        products.merge(event.getProductId(), 1L, Long::sum);
+        catalog.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        categories.incrementAndGet();
+        listings.incrementAndGet();
+        catalog.incrementAndGet();
+    }
+
+    private String tag(String version) {
+        return "\"" + nonce + "-" + version + "\"";
+    }
+}
@@ -1,11 +1,15 @@
 package com.cliqshop.service;
 
+import com.cliqshop.config.CacheConfig;
 import com.cliqshop.dto.CategoryDto;
 import com.cliqshop.entity.Category;
+import com.cliqshop.event.CategoryChangedEvent;
 import com.cliqshop.exception.ResourceNotFoundException;
 import com.cliqshop.repository.CategoryRepository;
 import com.cliqshop.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,14 +20,28 @@ public class CategoryServiceImpl implements CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Reads through the categories cache. The cached graph is never handed out;
+     * each caller gets its own copies of the categories and their products.
+     */
     @Override
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        // Categories serialize with their products, so load the whole graph up front;
+        // the cached list is detached and must not depend on lazy loading
+        List<Category> categories = cacheManager.getCache(CacheConfig.CATEGORIES)
+                .get("all", () -> List.copyOf(categoryRepository.findAllWithProducts()));
+        return categories.stream().map(Category::copyWithProducts).toList();
     }
 
     @Override
     public Category getCategoryById(Long id) {
-        return categoryRepository.findById(id)
+        return categoryRepository.findWithProductsByCategoryId(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
     }
 
@@ -32,7 +50,10 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = new Category();
         category.setName(categoryDto.getName());
         category.setDescription(categoryDto.getDescription());
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(CategoryChangedEvent.Action.CREATED,
+                savedCategory.getCategoryId(), savedCategory));
+        return savedCategory;
     }
 
     @Override
@@ -40,12 +61,15 @@ public class CategoryServiceImpl implements CategoryService {
         Category existingCategory = getCategoryById(id);
         existingCategory.setName(categoryDto.getName());
         existingCategory.setDescription(categoryDto.getDescription());
-        return categoryRepository.save(existingCategory);
+        Category savedCategory = categoryRepository.save(existingCategory);
+        eventPublisher.publishEvent(new CategoryChangedEvent(CategoryChangedEvent.Action.UPDATED, id, savedCategory));
+        return savedCategory;
     }
 
     @Override
     public void deleteCategory(Long id) {
         Category category = getCategoryById(id);
         categoryRepository.delete(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(CategoryChangedEvent.Action.DELETED, id, null));
     }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.cliqshop.service;
+
+import com.cliqshop.event.CategoryChangedEvent;
+import com.cliqshop.event.InventoryChangedEvent;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import com.cliqshop.entity.Product;
+import com.cliqshop.repository.CategoryRepository;
+import com.cliqshop.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the per-category product listing from an immutable, pre-serialized
+ * JSON snapshot with a strong ETag. A snapshot is built the first time a
+ * category is requested; after that, product, inventory and category changes
+ * mark it dirty and a background worker rebuilds it, so requests never wait
+ * on the database once a category is warm. Bursts of changes to one category
+ * collapse into a single rebuild, and a change that commits while the first
+ * build is still reading is followed by a rebuild once that build is served.
+ */
+@Service
+public class CategorySnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategorySnapshotService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Changes to categories without a snapshot yet; a first build that overlapped one rebuilds
+    private final Set<Long> changedWhileCold = ConcurrentHashMap.newKeySet();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-snapshot-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Snapshot getSnapshot(Long categoryId) {
+        Snapshot snapshot = snapshots.get(categoryId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Unknown ids get an answer but never a resident snapshot
+        if (!categoryRepository.existsById(categoryId)) {
+            return build(List.of());
+        }
+        snapshot = snapshots.computeIfAbsent(categoryId, this::build);
+        // A change that committed while the build was reading may be missing from it
+        if (changedWhileCold.remove(categoryId)) {
+            scheduleRebuild(categoryId);
+        }
+        return snapshot;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProduct() != null) {
+            scheduleRebuild(event.getProduct().getCategory().getCategoryId());
+        }
+        if (event.getPreviousCategoryId() != null) {
+            scheduleRebuild(event.getPreviousCategoryId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        // scheduleRebuild skips categories already queued, so each is rebuilt once
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        scheduleRebuild(event.getCategoryId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.getAction() == CategoryChangedEvent.Action.DELETED) {
+            snapshots.remove(event.getCategoryId());
+            changedWhileCold.remove(event.getCategoryId());
+        } else {
+            scheduleRebuild(event.getCategoryId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void scheduleRebuild(Long categoryId) {
+        // Categories nobody has asked for are built lazily on first request instead.
+        // The mark goes in before the second look: either getSnapshot sees it after
+        // publishing its first build, or this sees the published snapshot
+        if (!snapshots.containsKey(categoryId)) {
+            changedWhileCold.add(categoryId);
+            if (!snapshots.containsKey(categoryId)) {
+                return;
+            }
+            changedWhileCold.remove(categoryId);
+        }
+        if (!dirty.add(categoryId)) {
+            return;
+        }
+        rebuildExecutor.execute(() -> {
+            // Clear the flag first so a change that lands mid-build schedules another pass
+            dirty.remove(categoryId);
+            try {
+                snapshots.computeIfPresent(categoryId, (id, previous) -> build(productRepository.findByCategoryId(id)));
+            } catch (RuntimeException e) {
+                logger.error("Failed to rebuild product snapshot for category {}: {}", categoryId, e.getMessage());
+                snapshots.remove(categoryId);
+            }
+        });
+    }
+
+    private Snapshot build(Long categoryId) {
+        return build(productRepository.findByCategoryId(categoryId));
+    }
+
+    private Snapshot build(List<Product> products) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(products);
+            return new Snapshot(body, etagOf(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize category snapshot", e);
+        }
+    }
+
+    private static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static final class Snapshot {
+        private final byte[] body;
+        private final String etag;
+
+        private Snapshot(byte[] body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+
+        /**
+         * The serialized listing. Shared by every request; callers must not modify it.
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.cliqshop.service;
+
+import com.cliqshop.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions into opaque, URL-safe continuation tokens.
+ * A token is the base64 form of {@code "<kind>|<part>|<part>..."}; the kind
+ * ties a token to the listing and ordering that produced it.
+ */
+public final class CursorCodec {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(String kind, String... parts) {
+        StringBuilder raw = new StringBuilder(kind);
+        for (String part : parts) {
+            raw.append(SEPARATOR).append(part);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode} for the given kind. The last part
+     * may itself contain the separator, so free-text keys must be encoded last.
+     */
+    public static String[] decode(String token, String kind, int partCount) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+        String[] split = raw.split("\\" + SEPARATOR, partCount + 1);
+        if (split.length != partCount + 1 || !split[0].equals(kind)) {
+            throw new InvalidRequestException("Cursor does not match the requested listing");
+        }
+        String[] parts = new String[partCount];
+        System.arraycopy(split, 1, parts, 0, partCount);
+        return parts;
+    }
+}
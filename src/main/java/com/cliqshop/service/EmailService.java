@@ -5,6 +5,8 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+
 @Service
 public class EmailService {
 
@@ -68,4 +70,22 @@ public class EmailService {
         message.setText(emailContent);
         mailSender.send(message);
     }
+
+    public void sendOrderConfirmationEmail(String to, String name, Long orderId, BigDecimal totalPrice) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("CliQshop - Order #" + orderId + " received");
+        
+        String emailContent = String.format(
+            "Dear %s,\n\n" +
+            "Thank you for your order! We have received order #%d with a total of %s.\n\n" +
+            "We will let you know as soon as it ships.\n\n" +
+            "Best regards,\n" +
+            "CliQshop Team",
+            name, orderId, totalPrice
+        );
+        
+        message.setText(emailContent);
+        mailSender.send(message);
+    }
 }
@@ -0,0 +1,199 @@
+package com.cliqshop.service;
+
+import com.cliqshop.cart.GuestCartCodec;
+import com.cliqshop.dto.CartBatchRequest.CartOperation;
+import com.cliqshop.dto.CartBatchRequest.OperationType;
+import com.cliqshop.dto.CartDto;
+import com.cliqshop.dto.CartItemDto;
+import com.cliqshop.dto.GuestCartDto;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.repository.GuestCartMergeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carts for visitors who are not logged in. The cart lives in a signed token
+ * held by the client (see {@link GuestCartCodec}); each change decodes it,
+ * applies the operations, prices the lines through the product cache and
+ * returns a new token. Nothing is written to the database until the guest
+ * logs in and the cart is merged into theirs; each token can be merged once.
+ */
+@Service
+public class GuestCartService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestCartService.class);
+
+    @Autowired
+    private GuestCartCodec guestCartCodec;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private GuestCartMergeRepository guestCartMergeRepository;
+
+    @Value("${cart.guest.purge-interval:1h}")
+    private Duration purgeInterval;
+
+    @Value("${cart.guest.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService purgeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "guest-cart-merge-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public GuestCartService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        long millis = purgeInterval.toMillis();
+        purgeExecutor.scheduleWithFixedDelay(this::purgeSafely, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purgeExecutor.shutdownNow();
+    }
+
+    public GuestCartDto apply(String token, List<CartOperation> operations) {
+        Map<Long, Integer> lines = guestCartCodec.decode(token);
+        if (operations != null && !operations.isEmpty()) {
+            CartBatches.validate(operations);
+            // Rejects unknown products before anything is applied
+            CartBatches.productsToAdd(operations, productService);
+            for (CartOperation operation : operations) {
+                Long productId = operation.getProductId();
+                int quantity = Math.min(operation.getQuantity(), GuestCartCodec.MAX_QUANTITY);
+                switch (operation.getType()) {
+                    case ADD -> lines.merge(productId, quantity,
+                            (current, added) -> Math.min(current + added, GuestCartCodec.MAX_QUANTITY));
+                    case UPDATE -> lines.computeIfPresent(productId, (id, current) -> quantity);
+                    case REMOVE -> lines.remove(productId);
+                }
+            }
+            if (lines.size() > GuestCartCodec.MAX_LINES) {
+                throw new InvalidRequestException("A guest cart may have at most " + GuestCartCodec.MAX_LINES + " items");
+            }
+        }
+        return price(lines);
+    }
+
+    /**
+     * Adds the guest cart's lines to the user's cart in one batch and returns
+     * the result, or {@code null} if the guest cart was empty or has already
+     * been merged. A token merges once: it is recorded in the same
+     * transaction as the merge, so a replay adds nothing.
+     */
+    public CartDto mergeInto(Long userId, String token) {
+        GuestCartCodec.GuestCart guestCart = guestCartCodec.read(token);
+        List<CartOperation> operations = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : guestCart.lines().entrySet()) {
+            // Products deleted since they were added are dropped rather than failing the merge
+            if (productService.findById(line.getKey()).isPresent()) {
+                operations.add(new CartOperation(OperationType.ADD, line.getKey(), line.getValue()));
+            }
+        }
+        if (operations.isEmpty()) {
+            return null;
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(guestCart.expiresAt(), ZoneId.systemDefault());
+        try {
+            return transactionTemplate.execute(status -> {
+                guestCartMergeRepository.claim(guestCart.id(), userId, expiresAt);
+                return cartService.applyBatch(userId, operations);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Merged before, or by a concurrent request that committed first
+            if (!guestCartMergeRepository.existsById(guestCart.id())) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Forgets merged tokens that have expired, a bounded batch per
+     * transaction; returns how many were deleted.
+     */
+    public int purge() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> tokenIds = guestCartMergeRepository.findIdsExpiredBefore(now, Limit.of(purgeBatchSize));
+            if (tokenIds.isEmpty()) {
+                break;
+            }
+            deleted += transactionTemplate.execute(status -> guestCartMergeRepository.deleteByIds(tokenIds));
+            if (tokenIds.size() < purgeBatchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private void purgeSafely() {
+        try {
+            int deleted = purge();
+            if (deleted > 0) {
+                logger.info("Purged {} expired guest cart merges", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Guest cart merge purge failed: {}", e.getMessage());
+        }
+    }
+
+    private GuestCartDto price(Map<Long, Integer> lines) {
+        List<CartItemDto> items = new ArrayList<>(lines.size());
+        BigDecimal total = BigDecimal.ZERO;
+        Iterator<Map.Entry<Long, Integer>> iterator = lines.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Integer> line = iterator.next();
+            Optional<Product> product = productService.findById(line.getKey());
+            if (product.isEmpty()) {
+                iterator.remove();
+                continue;
+            }
+            BigDecimal subTotal = product.get().getPrice().multiply(BigDecimal.valueOf(line.getValue()));
+            items.add(new CartItemDto(null, line.getKey(), product.get().getName(), product.get().getPrice(),
+                    product.get().getImageUrl(), line.getValue(), subTotal));
+            total = total.add(subTotal);
+        }
+
+        GuestCartDto dto = new GuestCartDto();
+        dto.setToken(guestCartCodec.encode(lines));
+        dto.setTotalPrice(total);
+        dto.setItems(items);
+        return dto;
+    }
+}
@@ -0,0 +1,232 @@
+package com.cliqshop.service;
+
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per Idempotency-Key. The first request with a
+ * key runs in a transaction that also stores its response; retries within
+ * {@code idempotency.ttl} get that response back.
+ *
+ * Completed responses are kept in a bounded Caffeine cache, so a retry is
+ * normally answered from memory; the idempotency_keys table is the durable
+ * copy for retries that reach another instance or outlive the cache entry.
+ * A request that fails or returns an error stores nothing, so it can be
+ * retried with the same key.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${idempotency.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${idempotency.purge-interval:1h}")
+    private Duration purgeInterval;
+
+    @Value("${idempotency.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService purgeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-key-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Cache<String, StoredResponse> responses;
+
+    public IdempotencyService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        long millis = purgeInterval.toMillis();
+        purgeExecutor.scheduleWithFixedDelay(this::purgeSafely, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purgeExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs {@code action} unless a request with the same scope and key has
+     * already completed, in which case its stored response is returned. The
+     * scope keeps keys from different endpoints and owners apart. Without a
+     * key the action simply runs.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException(HEADER + " may be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = scope + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse stored = responses.getIfPresent(id);
+        if (stored == null) {
+            stored = findStored(id);
+        }
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        StoredResponse completed;
+        try {
+            completed = transactionTemplate.execute(status -> {
+                idempotencyRecordRepository.deleteIfExpired(id, LocalDateTime.now().minus(ttl));
+                idempotencyRecordRepository.claim(id, requestHash, LocalDateTime.now());
+                ResponseEntity<?> response = action.get();
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return new StoredResponse(response, null, null);
+                }
+                String body = toJson(response.getBody());
+                idempotencyRecordRepository.complete(id, response.getStatusCode().value(), body);
+                return new StoredResponse(response, requestHash, body);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with this key committed first
+            stored = findStored(id);
+            if (stored == null) {
+                throw e;
+            }
+            return replay(stored, requestHash);
+        }
+        if (completed.requestHash() != null) {
+            responses.put(id, new StoredResponse(null, completed.requestHash(), completed.body(),
+                    completed.statusCode()));
+        }
+        return completed.response();
+    }
+
+    /**
+     * Deletes stored responses older than the TTL, a bounded batch per
+     * transaction; returns how many were deleted.
+     */
+    public int purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        int deleted = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> keys = idempotencyRecordRepository.findKeysCreatedBefore(cutoff, Limit.of(purgeBatchSize));
+            if (keys.isEmpty()) {
+                break;
+            }
+            deleted += transactionTemplate.execute(status -> idempotencyRecordRepository.deleteByKeys(keys));
+            if (keys.size() < purgeBatchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private void purgeSafely() {
+        try {
+            int deleted = purge();
+            if (deleted > 0) {
+                logger.info("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Idempotency key purge failed: {}", e.getMessage());
+        }
+    }
+
+    private StoredResponse findStored(String id) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        return idempotencyRecordRepository.findById(id)
+                .filter(record -> record.getCreatedAt().isAfter(cutoff))
+                .map(record -> {
+                    StoredResponse stored = new StoredResponse(null, record.getRequestHash(), record.getResponseBody(),
+                            record.getStatusCode());
+                    responses.put(id, stored);
+                    return stored;
+                })
+                .orElse(null);
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new InvalidRequestException(HEADER + " was already used for a different request");
+        }
+        return ResponseEntity.status(stored.statusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.body());
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot hash request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return body != null ? objectMapper.writeValueAsString(body) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response", e);
+        }
+    }
+
+    // response is only set for the request that ran; cached and replayed entries keep just the stored fields
+    private record StoredResponse(ResponseEntity<?> response, String requestHash, String body, int statusCode) {
+
+        StoredResponse(ResponseEntity<?> response, String requestHash, String body) {
+            this(response, requestHash, body, response.getStatusCode().value());
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.cliqshop.service;
 
 import com.cliqshop.entity.Inventory;
 import com.cliqshop.entity.Product;
+import com.cliqshop.event.InventoryChangedEvent;
 import com.cliqshop.exception.ResourceNotFoundException;
 import com.cliqshop.repository.InventoryRepository;
 import com.cliqshop.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,11 +20,14 @@ public class InventoryServiceImpl implements InventoryService {
 
     private final InventoryRepository inventoryRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public InventoryServiceImpl(InventoryRepository inventoryRepository, ProductRepository productRepository) {
+    public InventoryServiceImpl(InventoryRepository inventoryRepository, ProductRepository productRepository,
+                                ApplicationEventPublisher eventPublisher) {
         this.inventoryRepository = inventoryRepository;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -38,13 +43,12 @@ public class InventoryServiceImpl implements InventoryService {
     
     @Override
     public Inventory updateStock(Long productId, Integer quantityChange) {
-        Inventory inventory = getInventoryByProductId(productId);
-        int newQuantity = inventory.getQuantity() + quantityChange;
-        if (newQuantity < 0) {
+        if (inventoryRepository.adjustQuantity(productId, quantityChange, LocalDateTime.now()) == 0) {
+            // Not found is still a 404; otherwise the change would have taken stock below zero
+            getInventoryByProductId(productId);
             throw new IllegalArgumentException("Stock level cannot be negative");
         }
-        inventory.setQuantity(newQuantity);
-        return inventoryRepository.save(inventory);
+        return saveAndPublish(getInventoryByProductId(productId));
     }
 
     @Override
@@ -54,7 +58,7 @@ public class InventoryServiceImpl implements InventoryService {
         }
         Inventory inventory = getInventoryByProductId(productId);
         inventory.setLowStockThreshold(threshold);
-        return inventoryRepository.save(inventory);
+        return saveAndPublish(inventory);
     }
 
     @Override
@@ -66,7 +70,7 @@ public class InventoryServiceImpl implements InventoryService {
     public Inventory updateWarehouseLocation(Long productId, String location) {
         Inventory inventory = getInventoryByProductId(productId);
         inventory.setWarehouseLocation(location);
-        return inventoryRepository.save(inventory);
+        return saveAndPublish(inventory);
     }
 
     @Override
@@ -88,14 +92,24 @@ public class InventoryServiceImpl implements InventoryService {
             inventory.setLastRestocked(LocalDateTime.now());
         }
         
-        return inventoryRepository.save(inventory);
+        return saveAndPublish(inventory);
     }
 
     @Override
     public void deleteInventory(Long inventoryId) {
-        if (!inventoryRepository.existsById(inventoryId)) {
-            throw new ResourceNotFoundException("Inventory not found with ID: " + inventoryId);
-        }
-        inventoryRepository.deleteById(inventoryId);
+        Inventory inventory = inventoryRepository.findById(inventoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory not found with ID: " + inventoryId));
+        Product product = inventory.getProduct();
+        inventoryRepository.delete(inventory);
+        eventPublisher.publishEvent(new InventoryChangedEvent(product.getProductId(),
+                product.getCategory().getCategoryId(), null));
+    }
+
+    private Inventory saveAndPublish(Inventory inventory) {
+        Inventory savedInventory = inventoryRepository.save(inventory);
+        Product product = savedInventory.getProduct();
+        eventPublisher.publishEvent(new InventoryChangedEvent(product.getProductId(),
+                product.getCategory().getCategoryId(), savedInventory.getQuantity()));
+        return savedInventory;
     }
 }
\ No newline at end of file
@@ -0,0 +1,290 @@
+package com.cliqshop.service;
+
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.OutboxEvent;
+import com.cliqshop.event.OrderChangedEvent;
+import com.cliqshop.repository.OutboxEventRepository;
+import com.cliqshop.websocket.OrderUpdateHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for order changes. {@link #append} writes an
+ * outbox_events row in the caller's transaction, so the event exists exactly
+ * when the order change does and the order transaction never waits on a
+ * listener or the websocket broker.
+ *
+ * A relay thread polls for pending rows every {@code outbox.relay.interval},
+ * a bounded batch per transaction. Each event is published to in-process
+ * listeners as an {@link OrderChangedEvent} and to the owner's order topic,
+ * then the batch is stamped as published. Delivery is at least once: if the
+ * relay fails before its transaction commits, the rows are delivered again on
+ * the next poll.
+ *
+ * Changes to one order are delivered in the order they were made only while a
+ * single relay runs; enable it on one instance. Rows are locked with SKIP
+ * LOCKED, so a second relay (say, during a rolling deploy) does not block on
+ * the first, but it may deliver a later change to an order while the first
+ * still holds an earlier one.
+ */
+@Service
+public class OrderOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutbox.class);
+
+    private static final String AGGREGATE_TYPE = "ORDER";
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OrderUpdateHandler orderUpdateHandler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean relayEnabled;
+
+    @Value("${outbox.relay.interval:500ms}")
+    private Duration relayInterval;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.lag-warning:1m}")
+    private Duration lagWarning;
+
+    @Value("${outbox.retention:7d}")
+    private Duration retention;
+
+    @Value("${outbox.purge-interval:1h}")
+    private Duration purgeInterval;
+
+    @Value("${outbox.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService relayExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile LocalDateTime lastRelayAt;
+
+    public OrderOutbox(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (relayEnabled) {
+            long millis = relayInterval.toMillis();
+            relayExecutor.scheduleWithFixedDelay(this::relaySafely, millis, millis, TimeUnit.MILLISECONDS);
+        }
+        long millis = purgeInterval.toMillis();
+        relayExecutor.scheduleWithFixedDelay(this::purgeSafely, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relayExecutor.shutdownNow();
+    }
+
+    /**
+     * Records that {@code order} changed, in the caller's transaction. Call it
+     * after applying the change, so the event carries the new status.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OrderChangedEvent.Type type, Order order) {
+        append(type, order.getOrderId(), order.getUser().getUserId(), order.getStatus(), order.getPaymentStatus());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OrderChangedEvent.Type type, Long orderId, Long userId, Order.OrderStatus status,
+                       Order.PaymentStatus paymentStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new OrderChange(orderId, userId, status, paymentStatus, now));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot record order change", e);
+        }
+        outboxEventRepository.save(new OutboxEvent(AGGREGATE_TYPE, orderId, type.name(), payload, now));
+    }
+
+    /**
+     * Publishes pending events, oldest first, a batch per transaction, until
+     * none are left or one fails; returns how many were published. Runs on the
+     * relay thread, but may be called directly, e.g. from tests.
+     */
+    public int relay() {
+        int count = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            RelayedBatch batch = transactionTemplate.execute(status -> relayBatch());
+            count += batch.published();
+            if (batch.failed() || batch.locked() < batchSize) {
+                break;
+            }
+        }
+        lastRelayAt = LocalDateTime.now();
+        return count;
+    }
+
+    private RelayedBatch relayBatch() {
+        List<OutboxEvent> pending = outboxEventRepository.lockPending(maxAttempts, batchSize);
+        List<Long> delivered = new ArrayList<>();
+        boolean failed = false;
+        for (OutboxEvent row : pending) {
+            try {
+                deliver(row);
+                delivered.add(row.getOutboxEventId());
+            } catch (RuntimeException e) {
+                // Stop here so this relay does not deliver later changes to the same order ahead of this one
+                failed = true;
+                failures.incrementAndGet();
+                outboxEventRepository.recordFailure(row.getOutboxEventId(), truncate(e.toString()));
+                if (row.getAttempts() + 1 >= maxAttempts) {
+                    logger.error("Giving up on outbox event {} after {} attempts: {}",
+                            row.getOutboxEventId(), maxAttempts, e.getMessage());
+                } else {
+                    logger.warn("Outbox event {} could not be delivered: {}", row.getOutboxEventId(), e.getMessage());
+                }
+                break;
+            }
+        }
+        if (!delivered.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            outboxEventRepository.markPublished(delivered, now);
+            published.addAndGet(delivered.size());
+            for (OutboxEvent row : pending.subList(0, delivered.size())) {
+                long lag = Duration.between(row.getCreatedAt(), now).toMillis();
+                totalLagMillis.addAndGet(lag);
+                maxLagMillis.accumulateAndGet(lag, Math::max);
+            }
+        }
+        return new RelayedBatch(pending.size(), delivered.size(), failed);
+    }
+
+    private void deliver(OutboxEvent row) {
+        OrderChange change;
+        try {
+            change = objectMapper.readValue(row.getPayload(), OrderChange.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+        OrderChangedEvent event = new OrderChangedEvent(row.getOutboxEventId(),
+                OrderChangedEvent.Type.valueOf(row.getEventType()), change.orderId(), change.userId(),
+                change.status(), change.paymentStatus(), change.occurredAt());
+        eventPublisher.publishEvent(event);
+        orderUpdateHandler.notifyOrderChanged(event);
+    }
+
+    /**
+     * Deletes published events older than the retention period, a bounded
+     * batch per transaction; returns how many were deleted.
+     */
+    public int purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int deleted = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> ids = outboxEventRepository.findIdsPublishedBefore(cutoff, Limit.of(purgeBatchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            deleted += transactionTemplate.execute(status -> outboxEventRepository.deleteByIds(ids));
+            if (ids.size() < purgeBatchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> getStats() {
+        long publishedCount = published.get();
+        LocalDateTime oldestPending = outboxEventRepository.findOldestPendingCreatedAt(maxAttempts);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("relayEnabled", relayEnabled);
+        stats.put("pending", outboxEventRepository.countPending(maxAttempts));
+        stats.put("oldestPendingAgeMillis",
+                oldestPending != null ? Duration.between(oldestPending, LocalDateTime.now()).toMillis() : 0);
+        stats.put("abandoned", outboxEventRepository.countAbandoned(maxAttempts));
+        stats.put("published", publishedCount);
+        stats.put("failures", failures.get());
+        stats.put("avgLagMillis", publishedCount > 0 ? (double) totalLagMillis.get() / publishedCount : 0.0);
+        stats.put("maxLagMillis", maxLagMillis.get());
+        stats.put("lastRelayAt", lastRelayAt);
+        return stats;
+    }
+
+    private void relaySafely() {
+        try {
+            relay();
+            LocalDateTime oldestPending = outboxEventRepository.findOldestPendingCreatedAt(maxAttempts);
+            if (oldestPending != null && oldestPending.isBefore(LocalDateTime.now().minus(lagWarning))) {
+                logger.warn("Outbox relay is behind: oldest pending event was written at {}", oldestPending);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Outbox relay failed: {}", e.getMessage());
+        }
+    }
+
+    private void purgeSafely() {
+        try {
+            int deleted = purge();
+            if (deleted > 0) {
+                logger.info("Purged {} published outbox events", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Outbox purge failed: {}", e.getMessage());
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    // What the payload column holds; the event type and id live in their own columns
+    private record OrderChange(Long orderId, Long userId, Order.OrderStatus status, Order.PaymentStatus paymentStatus,
+                               LocalDateTime occurredAt) {
+    }
+
+    private record RelayedBatch(int locked, int published, boolean failed) {
+    }
+}
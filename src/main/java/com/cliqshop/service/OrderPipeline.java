@@ -0,0 +1,111 @@
+package com.cliqshop.service;
+
+import com.cliqshop.event.OrderPlacedEvent;
+import com.cliqshop.exception.ServiceUnavailableException;
+import com.cliqshop.order.PipelineStage;
+import com.cliqshop.websocket.OrderUpdateHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Order placement as a chain of stages, each with its own bounded queue and
+ * thread pool (see {@link PipelineStage}).
+ *
+ * The placement stage runs the order transaction: validation, pricing, stock
+ * and the order rows. The request is answered when it commits; a full
+ * placement queue answers 503 at once instead of piling up waiting requests.
+ * After commit, {@link OrderPlacedEvent} fans out to stages the customer does
+ * not wait for: stock-level events for caches and the facet index, the
+ * confirmation email, and the websocket notification. Those stages fall back
+ * to running on the placement thread when full, so follow-up work slows
+ * placement down rather than being dropped.
+ */
+@Service
+public class OrderPipeline {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private OrderUpdateHandler orderUpdateHandler;
+
+    @Value("${order.pipeline.placement.threads:8}")
+    private int placementThreads;
+
+    @Value("${order.pipeline.placement.queue-capacity:200}")
+    private int placementQueueCapacity;
+
+    @Value("${order.pipeline.follow-up.threads:2}")
+    private int followUpThreads;
+
+    @Value("${order.pipeline.follow-up.queue-capacity:1000}")
+    private int followUpQueueCapacity;
+
+    @Value("${order.confirmation-email.enabled:true}")
+    private boolean confirmationEmailEnabled;
+
+    private PipelineStage placement;
+    private PipelineStage stockEvents;
+    private PipelineStage confirmationEmail;
+    private PipelineStage notifications;
+
+    @PostConstruct
+    public void start() {
+        placement = new PipelineStage("placement", placementThreads, placementQueueCapacity);
+        stockEvents = new PipelineStage("stock-events", followUpThreads, followUpQueueCapacity);
+        confirmationEmail = new PipelineStage("confirmation-email", followUpThreads, followUpQueueCapacity);
+        notifications = new PipelineStage("notifications", followUpThreads, followUpQueueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        placement.shutdown();
+        stockEvents.shutdown();
+        confirmationEmail.shutdown();
+        notifications.shutdown();
+    }
+
+    /**
+     * Runs {@code placeOrder} on the placement stage; the future completes
+     * once it has returned, i.e. once the order has committed.
+     */
+    public <T> CompletableFuture<T> place(Supplier<T> placeOrder) {
+        try {
+            return placement.submit(placeOrder);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many orders are being placed, please retry shortly");
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        stockEvents.execute(() -> stockReservationService.publishStockLevels(event.getProductIds()));
+        if (confirmationEmailEnabled && event.getEmail() != null) {
+            confirmationEmail.execute(() -> emailService.sendOrderConfirmationEmail(event.getEmail(),
+                    event.getName(), event.getOrderId(), event.getTotalPrice()));
+        }
+        notifications.execute(() -> orderUpdateHandler.notifyOrderPlaced(event.getUserId(), event.getOrderId()));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("placement", placement.getStats());
+        stats.put("stockEvents", stockEvents.getStats());
+        stats.put("confirmationEmail", confirmationEmail.getStats());
+        stats.put("notifications", notifications.getStats());
+        return stats;
+    }
+}
@@ -0,0 +1,187 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.AdminOrderSummaryDto;
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.OrderSearchCriteria;
+import com.cliqshop.dto.OrderSearchSort;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.User;
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.repository.OrderSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Admin order search: optional filters on status, payment status, date range,
+ * user and amount, sorted by date or total, keyset-paginated or streamed out
+ * as CSV. Rows are flat projections of the order and its customer, so neither
+ * mode loads order graphs, and the export holds one row at a time.
+ *
+ * Each ordering has an index to range-scan: idx_orders_status_history,
+ * idx_orders_payment_status_history and idx_orders_date when filtering on
+ * those, idx_orders_user_history for one customer, idx_orders_total for the
+ * amount orderings.
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderSearchService {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final String[] COLUMNS = {
+            "orderId", "orderDate", "status", "paymentStatus", "totalPrice",
+            "paymentMethod", "shippingMethod", "userId", "customerName", "customerEmail"
+    };
+
+    // Push buffered rows to the client every this many rows
+    private static final int FLUSH_EVERY = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${order-export.fetch-size:1000}")
+    private int fetchSize;
+
+    public CursorPage<AdminOrderSummaryDto> search(OrderSearchCriteria criteria, OrderSearchSort sort,
+                                                   String cursor, int size) {
+        validate(criteria);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Specification<Order> spec = OrderSpecifications.matching(criteria);
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = CursorCodec.decode(cursor, sort.name(), 2);
+            spec = spec.and(OrderSpecifications.after(sort, parseSortKey(sort, position[1]),
+                    parseCursorId(position[0])));
+        }
+
+        // Fetch one extra row to learn whether another page exists without a count query
+        List<AdminOrderSummaryDto> rows = query(spec, sort).setMaxResults(pageSize + 1).getResultList();
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<AdminOrderSummaryDto> page = new ArrayList<>(rows.subList(0, pageSize));
+        AdminOrderSummaryDto last = page.get(pageSize - 1);
+        String sortKey = sort.isByTotal() ? last.getTotalPrice().toPlainString() : last.getOrderDate().toString();
+        return new CursorPage<>(page, CursorCodec.encode(sort.name(), String.valueOf(last.getOrderId()), sortKey));
+    }
+
+    /**
+     * Writes every matching order to {@code output} as CSV, in the given order,
+     * as rows come off the database cursor.
+     */
+    public void exportCsv(OrderSearchCriteria criteria, OrderSearchSort sort, OutputStream output)
+            throws IOException {
+        validate(criteria);
+        TypedQuery<AdminOrderSummaryDto> query = query(OrderSpecifications.matching(criteria), sort)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+        writer.flush();
+        int rows = 0;
+        try (Stream<AdminOrderSummaryDto> results = query.getResultStream()) {
+            for (AdminOrderSummaryDto row : (Iterable<AdminOrderSummaryDto>) results::iterator) {
+                writeCsvRow(writer, row);
+                rows++;
+                // The first row goes out at once so clients see progress before the scan finishes
+                if (rows == 1 || rows % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // Typically the client went away mid-download
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private TypedQuery<AdminOrderSummaryDto> query(Specification<Order> spec, OrderSearchSort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AdminOrderSummaryDto> query = cb.createQuery(AdminOrderSummaryDto.class);
+        Root<Order> order = query.from(Order.class);
+        Join<Order, User> user = order.join("user");
+        query.select(cb.construct(AdminOrderSummaryDto.class,
+                order.get("orderId"), order.get("orderDate"), order.get("status"), order.get("paymentStatus"),
+                order.get("totalPrice"), order.get("paymentMethod"), order.get("shippingMethod"),
+                user.get("userId"), user.get("name"), user.get("email")));
+        query.where(spec.toPredicate(order, query, cb));
+        Path<?> key = order.get(sort.isByTotal() ? "totalPrice" : "orderDate");
+        Path<?> id = order.get("orderId");
+        query.orderBy(sort.isDescending()
+                ? List.of(cb.desc(key), cb.desc(id))
+                : List.of(cb.asc(key), cb.asc(id)));
+        return entityManager.createQuery(query);
+    }
+
+    private static void validate(OrderSearchCriteria criteria) {
+        if (criteria.getFrom() != null && criteria.getTo() != null && !criteria.getFrom().isBefore(criteria.getTo())) {
+            throw new InvalidRequestException("from must be before to");
+        }
+        if (criteria.getMinTotal() != null && criteria.getMaxTotal() != null
+                && criteria.getMinTotal().compareTo(criteria.getMaxTotal()) > 0) {
+            throw new InvalidRequestException("minTotal must not exceed maxTotal");
+        }
+    }
+
+    private static void writeCsvRow(Writer writer, AdminOrderSummaryDto row) {
+        Object[] values = {
+                row.getOrderId(), row.getOrderDate(), row.getStatus(), row.getPaymentStatus(),
+                row.getTotalPrice() != null ? row.getTotalPrice().toPlainString() : null,
+                row.getPaymentMethod(), row.getShippingMethod(), row.getUserId(),
+                row.getCustomerName(), row.getCustomerEmail()
+        };
+        try {
+            for (int column = 0; column < values.length; column++) {
+                if (column > 0) {
+                    writer.write(',');
+                }
+                ProductExportService.writeCsvField(writer, Objects.toString(values[column], null));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Comparable<?> parseSortKey(OrderSearchSort sort, String value) {
+        try {
+            return sort.isByTotal() ? new BigDecimal(value) : LocalDateTime.parse(value);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+
+    private static Long parseCursorId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.cliqshop.service;
 
+import com.cliqshop.dto.CursorPage;
 import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.dto.OrderSummaryDto;
 import com.cliqshop.entity.Order;
 import com.cliqshop.entity.Order.OrderStatus;
 import com.cliqshop.entity.Order.PaymentStatus;
@@ -13,6 +15,7 @@ public interface OrderService {
     Order placeOrder(OrderRequest orderRequest);
     Order getOrderById(Long orderId);
     List<Order> getAllOrders();
+    long countOrders();
     List<Order> getOrdersByUserId(Long userId);
     Order updateOrderStatus(Long orderId, OrderStatus status);
     boolean cancelOrder(Long orderId, Long userId);
@@ -20,6 +23,16 @@ public interface OrderService {
     public Page<Order> getOrdersByUserId(Long userId, int page, int size);
     List<Order> getRecentOrdersByUserId(Long userId, int limit);
     public long countOrdersByUserId(Long userId);
+
+    /**
+     * One page of a user's order history, newest first, with each order's lines
+     *
+     * @param userId The user whose orders to list
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param size The page size, capped by the service
+     * @return The page and the cursor for the next one
+     */
+    CursorPage<OrderSummaryDto> getOrderHistory(Long userId, String cursor, int size);
     /**
      * Update an order object and save it to the database
      *
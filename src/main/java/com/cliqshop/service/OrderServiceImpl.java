@@ -1,21 +1,46 @@
 package com.cliqshop.service;
 
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.OrderItemSummaryDto;
 import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.dto.OrderSummaryDto;
 import com.cliqshop.entity.*;
+import com.cliqshop.event.OrderChangedEvent;
+import com.cliqshop.event.OrderPlacedEvent;
+import com.cliqshop.exception.ConflictException;
+import com.cliqshop.exception.InvalidRequestException;
 import com.cliqshop.exception.ResourceNotFoundException;
+import com.cliqshop.repository.AddressRepository;
 import com.cliqshop.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -23,6 +48,12 @@ public class OrderServiceImpl implements OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 50;
+    private static final String HISTORY_CURSOR = "ORDER_HISTORY";
+
+    private static final String INSERT_ORDER_ITEM =
+            "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -33,60 +64,148 @@ public class OrderServiceImpl implements OrderService {
     private ProductService productService;
 
     @Autowired
-    private AddressService addressService;
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
 
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Places an order in a constant number of statements, however many lines
+     * it has: the user, both addresses in one query, every product in one IN
+     * query (through the product cache), the order insert, and one JDBC batch
+     * for the lines. Order item ids are IDENTITY, so Hibernate would insert
+     * the lines one statement at a time.
+     */
     @Override
     public Order placeOrder(OrderRequest orderRequest) {
         User user = userService.findById(orderRequest.getUserId())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + orderRequest.getUserId()));
 
         // Get billing and shipping addresses
-        Address billingAddress = null;
-        Address shippingAddress = null;
-
-        if (orderRequest.getBillingAddressId() != null) {
-            billingAddress = addressService.getAddressById(orderRequest.getBillingAddressId());
+        Long shippingAddressId = orderRequest.getShippingAddressId() != null
+                ? orderRequest.getShippingAddressId() : orderRequest.getBillingAddressId();
+        if (shippingAddressId == null) {
+            throw new IllegalArgumentException("Shipping address is required");
         }
-
-        if (orderRequest.getShippingAddressId() != null) {
-            shippingAddress = addressService.getAddressById(orderRequest.getShippingAddressId());
-        } else if (orderRequest.getBillingAddressId() != null) {
-            shippingAddress = billingAddress;
+        Map<Long, Address> addresses = new HashMap<>();
+        for (Address address : addressRepository.findAllById(
+                Stream.of(orderRequest.getBillingAddressId(), shippingAddressId)
+                        .filter(Objects::nonNull).distinct().collect(Collectors.toList()))) {
+            addresses.put(address.getAddressId(), address);
         }
+        Address billingAddress = orderRequest.getBillingAddressId() != null
+                ? requireAddress(addresses, orderRequest.getBillingAddressId()) : null;
+        Address shippingAddress = requireAddress(addresses, shippingAddressId);
 
-        if (shippingAddress == null) {
-            throw new IllegalArgumentException("Shipping address is required");
+        List<OrderRequest.OrderItemRequest> lines = orderRequest.getItems();
+        if (lines == null || lines.isEmpty()) {
+            throw new InvalidRequestException("An order needs at least one item");
         }
+        Map<Long, Product> products = productService.findAllById(lines.stream()
+                .map(OrderRequest.OrderItemRequest::getProductId).collect(Collectors.toSet()));
+        for (OrderRequest.OrderItemRequest line : lines) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + line.getProductId());
+            }
+            if (line.getQuantity() <= 0) {
+                throw new InvalidRequestException("Quantity must be positive for product " + line.getProductId());
+            }
+            // The client's price is what the customer saw; refuse to charge anything else
+            if (line.getPrice() == null || line.getPrice().compareTo(product.getPrice()) != 0) {
+                throw new ConflictException("The price of " + product.getName() + " is now " + product.getPrice());
+            }
+        }
+        // The order is charged what its lines add up to at the server's prices, never a client figure
+        BigDecimal totalPrice = lines.stream()
+                .map(line -> products.get(line.getProductId()).getPrice()
+                        .multiply(BigDecimal.valueOf(line.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (orderRequest.getTotalPrice() != null && orderRequest.getTotalPrice().compareTo(totalPrice) != 0) {
+            throw new ConflictException("The order total is " + totalPrice + ", not " + orderRequest.getTotalPrice());
+        }
+        LocalDateTime reservedUntil = stockReservationService.reserve(quantitiesByProduct(lines));
 
         Order order = new Order();
         order.setUser(user);
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(Order.OrderStatus.PENDING);
         order.setPaymentStatus(Order.PaymentStatus.PENDING);
-        order.setTotalPrice(orderRequest.getTotalPrice());
+        order.setTotalPrice(totalPrice);
         order.setBillingAddress(billingAddress);
         order.setShippingAddress(shippingAddress);
         order.setShippingMethod(orderRequest.getShippingMethod());
         order.setPaymentMethod(orderRequest.getPaymentMethod());
         order.setOrderNotes(orderRequest.getOrderNotes());
+        order.setStockReserved(true);
+        order.setReservedUntil(reservedUntil);
+        orderRepository.saveAndFlush(order);
 
-        List<OrderItem> orderItems = orderRequest.getItems().stream()
-                .map(item -> {
-                    Product product = productService.findById(item.getProductId())
-                            .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + item.getProductId()));
-
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setOrder(order);
-                    orderItem.setProduct(product);
-                    orderItem.setQuantity(item.getQuantity());
-                    orderItem.setPrice(item.getPrice());
-                    return orderItem;
-                })
+        List<OrderItem> orderItems = lines.stream()
+                .map(line -> new OrderItem(order, products.get(line.getProductId()), line.getQuantity(),
+                        products.get(line.getProductId()).getPrice()))
                 .collect(Collectors.toList());
+        insertOrderItems(order, orderItems);
 
+        // The lines were written directly; detach the order so they are never cascaded again
+        entityManager.detach(order);
         order.setItems(orderItems);
 
-        return orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderPlacedEvent(order.getOrderId(), user.getUserId(), user.getEmail(),
+                user.getName(), order.getTotalPrice(), new ArrayList<>(products.keySet())));
+        return order;
+    }
+
+    private static Map<Long, Integer> quantitiesByProduct(List<OrderRequest.OrderItemRequest> lines) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderRequest.OrderItemRequest line : lines) {
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private static Address requireAddress(Map<Long, Address> addresses, Long addressId) {
+        Address address = addresses.get(addressId);
+        if (address == null) {
+            throw new ResourceNotFoundException("Address not found with id: " + addressId);
+        }
+        return address;
+    }
+
+    private void insertOrderItems(Order order, List<OrderItem> orderItems) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_ORDER_ITEM, new String[] {"order_item_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderItem item = orderItems.get(i);
+                        ps.setLong(1, order.getOrderId());
+                        ps.setLong(2, item.getProduct().getProductId());
+                        ps.setInt(3, item.getQuantity());
+                        ps.setBigDecimal(4, item.getPrice());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orderItems.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < orderItems.size(); i++) {
+            orderItems.get(i).setOrderItemId(((Number) generated.get(i).values().iterator().next()).longValue());
+        }
     }
 
     @Override
@@ -100,6 +219,11 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findAll();
     }
 
+    @Override
+    public long countOrders() {
+        return orderRepository.count();
+    }
+
     @Override
     public List<Order> getOrdersByUserId(Long userId) {
         return orderRepository.findByUser_UserId(userId);
@@ -115,6 +239,59 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.countByUser_UserId(userId);
     }
 
+    /**
+     * Reads a page of history in two queries whatever its size: the order
+     * summaries, then every line of those orders.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryDto> getOrderHistory(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page exists without a count query
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<OrderSummaryDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = orderRepository.findSummariesByUser(userId, limit);
+        } else {
+            String[] position = CursorCodec.decode(cursor, HISTORY_CURSOR, 2);
+            rows = orderRepository.findSummariesByUserBefore(userId, parseCursorDate(position[1]),
+                    parseCursorId(position[0]), limit);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            OrderSummaryDto last = rows.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(HISTORY_CURSOR, String.valueOf(last.getOrderId()),
+                    last.getOrderDate().toString());
+        }
+        if (!rows.isEmpty()) {
+            Map<Long, OrderSummaryDto> byId = new HashMap<>();
+            rows.forEach(summary -> byId.put(summary.getOrderId(), summary));
+            for (OrderItemSummaryDto item : orderRepository.findItemSummaries(byId.keySet())) {
+                byId.get(item.getOrderId()).getItems().add(item);
+            }
+        }
+        return new CursorPage<>(rows, nextCursor);
+    }
+
+    private Long parseCursorId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+
+    private LocalDateTime parseCursorDate(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+
     @Override
     public List<Order> getRecentOrdersByUserId(Long userId, int limit) {
         PageRequest pageRequest = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "orderDate"));
@@ -124,7 +301,12 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
         Order order = getOrderById(orderId);
+        if (status == Order.OrderStatus.CANCELLED) {
+            releaseStock(order);
+        }
         order.setStatus(status);
+        orderOutbox.append(status == Order.OrderStatus.CANCELLED
+                ? OrderChangedEvent.Type.CANCELLED : OrderChangedEvent.Type.STATUS_CHANGED, order);
         return orderRepository.save(order);
     }
 
@@ -138,7 +320,9 @@ public class OrderServiceImpl implements OrderService {
 
         if (order.getStatus() == Order.OrderStatus.PENDING ||
             order.getStatus() == Order.OrderStatus.PROCESSING) {
+            releaseStock(order);
             order.setStatus(Order.OrderStatus.CANCELLED);
+            orderOutbox.append(OrderChangedEvent.Type.CANCELLED, order);
             orderRepository.save(order);
             return true;
         }
@@ -169,13 +353,18 @@ public class OrderServiceImpl implements OrderService {
         order.setPaymentIntentId(paymentIntentId);
 
         if (paymentStatus == Order.PaymentStatus.PAID) {
+            confirmStock(order);
             order.setStatus(Order.OrderStatus.PROCESSING);
             order.setPaymentDate(LocalDateTime.now());
         } else if (paymentStatus == Order.PaymentStatus.FAILED) {
+            releaseStock(order);
             order.setStatus(Order.OrderStatus.PAYMENT_FAILED);
         } else if (paymentStatus == Order.PaymentStatus.REFUNDED) {
             order.setStatus(Order.OrderStatus.REFUNDED);
         }
+        orderOutbox.append(paymentStatus == Order.PaymentStatus.PAID ? OrderChangedEvent.Type.PAID
+                : paymentStatus == Order.PaymentStatus.FAILED ? OrderChangedEvent.Type.PAYMENT_FAILED
+                : OrderChangedEvent.Type.PAYMENT_STATUS_CHANGED, order);
 
         logger.info("Updated payment status for order {}: {}", orderId, paymentStatus);
         return orderRepository.save(order);
@@ -184,7 +373,9 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Order markOrderAsPaid(Long orderId, String paymentIntentId, String receiptUrl) {
         Order order = getOrderById(orderId);
+        confirmStock(order);
         order.markAsPaid(paymentIntentId, receiptUrl);
+        orderOutbox.append(OrderChangedEvent.Type.PAID, order);
         logger.info("Marked order {} as paid with payment intent: {}", orderId, paymentIntentId);
         return orderRepository.save(order);
     }
@@ -192,8 +383,38 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Order markOrderPaymentFailed(Long orderId, String paymentIntentId) {
         Order order = getOrderById(orderId);
+        releaseStock(order);
         order.markPaymentFailed(paymentIntentId);
+        orderOutbox.append(OrderChangedEvent.Type.PAYMENT_FAILED, order);
         logger.info("Marked order {} payment as failed with payment intent: {}", orderId, paymentIntentId);
         return orderRepository.save(order);
     }
+
+    // Both keep the loaded order in step with the reservation columns just updated, so saving it does not undo them
+
+    private void releaseStock(Order order) {
+        if (stockReservationService.release(order.getOrderId())) {
+            logger.info("Released stock reserved by order {}", order.getOrderId());
+        }
+        order.setStockReserved(false);
+        order.setReservedUntil(null);
+    }
+
+    private void confirmStock(Order order) {
+        if (!stockReservationService.confirm(order.getOrderId())
+                && order.getStatus() == Order.OrderStatus.CANCELLED) {
+            // Paid after the order was cancelled and its stock returned: take the stock again if it is still there
+            Map<Long, Integer> quantities = new HashMap<>();
+            order.getItems().forEach(item -> quantities.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum));
+            try {
+                stockReservationService.reserve(quantities);
+                order.setStockReserved(true);
+                logger.warn("Order {} was paid after its reservation lapsed; stock taken again", order.getOrderId());
+            } catch (ConflictException e) {
+                logger.error("Order {} was paid after its reservation lapsed and is now out of stock: {}",
+                        order.getOrderId(), e.getMessage());
+            }
+        }
+        order.setReservedUntil(null);
+    }
 }
@@ -0,0 +1,167 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.CatalogFileFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes the whole catalog to an output stream as it is read. Rows come off a
+ * forward-only JDBC cursor with a bounded fetch size and go straight to the
+ * writer without being mapped to entities, so heap use does not grow with
+ * the catalog and the first rows leave before the query has finished.
+ *
+ * <p>Columns match {@link ProductImportService}, but the export is the whole
+ * catalog: products without a SKU (no inventory row, or one that predates
+ * SKUs) are written with an empty sku, and the import rejects those rows
+ * because SKU is its key. Everything else re-imports as is.
+ */
+@Service
+public class ProductExportService {
+
+    private static final String[] COLUMNS = {
+            "productId", "sku", "name", "description", "price", "imageUrl",
+            "categoryId", "category", "quantity", "lowStockThreshold"
+    };
+
+    private static final String SELECT_CATALOG =
+            "SELECT p.product_id, i.sku, p.name, p.description, p.price, p.image_url, " +
+            "c.category_id, c.name, i.quantity, i.low_stock_threshold " +
+            "FROM products p JOIN categories c ON c.category_id = p.category_id " +
+            "LEFT JOIN inventory i ON i.product_id = p.product_id ORDER BY p.product_id";
+
+    // Push buffered rows to the client every this many rows
+    private static final int FLUSH_EVERY = 1000;
+
+    private final JdbcTemplate cursorTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ProductExportService(DataSource dataSource, ObjectMapper objectMapper,
+                                @Value("${product-export.fetch-size:1000}") int fetchSize) {
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void export(CatalogFileFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try {
+            if (format == CatalogFileFormat.CSV) {
+                exportCsv(writer);
+            } else {
+                exportNdjson(writer);
+            }
+        } catch (UncheckedIOException e) {
+            // Typically the client went away mid-download
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void exportCsv(Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+        writer.flush();
+        int[] rows = {0};
+        cursorTemplate.query(SELECT_CATALOG, rs -> {
+            try {
+                for (int column = 1; column <= COLUMNS.length; column++) {
+                    if (column > 1) {
+                        writer.write(',');
+                    }
+                    writeCsvField(writer, rs.getString(column));
+                }
+                writer.write('\n');
+                if (shouldFlush(++rows[0])) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void exportNdjson(Writer writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        // One object per line; the generator must not close the response stream
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        int[] rows = {0};
+        cursorTemplate.query(SELECT_CATALOG, rs -> {
+            try {
+                writeJsonRow(generator, rs);
+                generator.writeRaw('\n');
+                if (shouldFlush(++rows[0])) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.flush();
+    }
+
+    // The first row goes out at once so clients see progress before the scan finishes
+    private static boolean shouldFlush(int rowsWritten) {
+        return rowsWritten == 1 || rowsWritten % FLUSH_EVERY == 0;
+    }
+
+    private static void writeJsonRow(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField(COLUMNS[0], rs.getLong(1));
+        generator.writeStringField(COLUMNS[1], rs.getString(2));
+        generator.writeStringField(COLUMNS[2], rs.getString(3));
+        generator.writeStringField(COLUMNS[3], rs.getString(4));
+        BigDecimal price = rs.getBigDecimal(5);
+        generator.writeFieldName(COLUMNS[4]);
+        generator.writeNumber(price);
+        generator.writeStringField(COLUMNS[5], rs.getString(6));
+        generator.writeNumberField(COLUMNS[6], rs.getLong(7));
+        generator.writeStringField(COLUMNS[7], rs.getString(8));
+        writeNullableInt(generator, COLUMNS[8], rs, 9);
+        writeNullableInt(generator, COLUMNS[9], rs, 10);
+        generator.writeEndObject();
+    }
+
+    private static void writeNullableInt(JsonGenerator generator, String field, ResultSet rs, int column)
+            throws IOException, SQLException {
+        int value = rs.getInt(column);
+        if (rs.wasNull()) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    // Shared with the order export
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
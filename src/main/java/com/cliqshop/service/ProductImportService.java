@@ -0,0 +1,443 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.CatalogFileFormat;
+import com.cliqshop.dto.ProductImportReport;
+import com.cliqshop.dto.ProductImportRow;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Inventory;
+import com.cliqshop.entity.Product;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Streams a supplier catalog (CSV or NDJSON) into the product and inventory
+ * tables. Rows are validated as they are read, keyed by SKU, and written in
+ * JDBC batches of {@code product-import.batch-size}; product ids are IDENTITY
+ * generated, which rules out Hibernate's insert batching, so the writes go
+ * through plain JDBC. A batch that fails as a whole is replayed row by row so
+ * the offending rows are reported and the rest still land.
+ *
+ * <p>A SKU may appear once per batch; a later batch setting it again updates
+ * the product like any existing SKU. Each written batch publishes one
+ * {@link ProductsImportedEvent} with a {@link ProductChangedEvent} per row, so
+ * the search index, caches and snapshots pick up the batch on commit in one
+ * pass.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int DEFAULT_LOW_STOCK_THRESHOLD = 10;
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    private static final String FIND_STOCKED_SKUS =
+            "SELECT i.sku, i.product_id, p.category_id FROM inventory i " +
+            "JOIN products p ON p.product_id = i.product_id WHERE i.sku IN (:skus)";
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (name, description, price, image_url, category_id, version) VALUES (?, ?, ?, ?, ?, 0)";
+    private static final String UPDATE_PRODUCT =
+            "UPDATE products SET name = ?, description = ?, price = ?, image_url = ?, category_id = ?, " +
+            "version = version + 1 WHERE product_id = ?";
+    private static final String INSERT_INVENTORY =
+            "INSERT INTO inventory (product_id, quantity, low_stock_threshold, last_restocked, last_updated, sku) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    // Omitted stock columns keep their current values on update
+    private static final String UPDATE_INVENTORY =
+            "UPDATE inventory SET quantity = COALESCE(?, quantity), " +
+            "low_stock_threshold = COALESCE(?, low_stock_threshold), last_updated = ? WHERE product_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${product-import.batch-size:1000}")
+    private int batchSize;
+
+    public ProductImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ProductImportReport importProducts(InputStream input, CatalogFileFormat format) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        ImportRun run = new ImportRun(categoryRepository.findAll());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        if (format == CatalogFileFormat.CSV) {
+            readCsv(reader, run);
+        } else {
+            readNdjson(reader, run);
+        }
+        flush(run);
+        run.report.setElapsedMillis(System.currentTimeMillis() - startedAt);
+        logger.info("Product import finished: {} rows, {} created, {} updated, {} failed in {} ms",
+                run.report.getProcessed(), run.report.getCreated(), run.report.getUpdated(),
+                run.report.getFailed(), run.report.getElapsedMillis());
+        return run.report;
+    }
+
+    private void readNdjson(BufferedReader reader, ImportRun run) throws IOException {
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ProductImportRow row;
+            try {
+                row = objectMapper.readValue(line, ProductImportRow.class);
+            } catch (JsonProcessingException e) {
+                run.reject(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            accept(run, lineNumber, row);
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ImportRun run) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        List<BiConsumer<ProductImportRow, String>> columns = new ArrayList<>(header.size());
+        for (String name : header) {
+            columns.add(csvColumn(name.trim().toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "")));
+        }
+        if (!header.stream().map(h -> h.trim().toLowerCase(Locale.ROOT)).toList().containsAll(List.of("sku", "name", "price"))) {
+            throw new InvalidRequestException("CSV header must include sku, name and price columns");
+        }
+
+        List<String> fields;
+        while ((fields = csv.next()) != null) {
+            ProductImportRow row = new ProductImportRow();
+            try {
+                for (int i = 0; i < columns.size() && i < fields.size(); i++) {
+                    String value = fields.get(i).trim();
+                    if (!value.isEmpty()) {
+                        columns.get(i).accept(row, value);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                run.reject(csv.recordLine(), row.getSku(), "Invalid number: " + e.getMessage());
+                continue;
+            }
+            accept(run, csv.recordLine(), row);
+        }
+    }
+
+    private static BiConsumer<ProductImportRow, String> csvColumn(String name) {
+        return switch (name) {
+            case "sku" -> ProductImportRow::setSku;
+            case "name" -> ProductImportRow::setName;
+            case "description" -> ProductImportRow::setDescription;
+            case "price" -> (row, value) -> row.setPrice(new BigDecimal(value));
+            case "imageurl" -> ProductImportRow::setImageUrl;
+            case "category" -> ProductImportRow::setCategory;
+            case "categoryid" -> (row, value) -> row.setCategoryId(Long.valueOf(value));
+            case "quantity" -> (row, value) -> row.setQuantity(Integer.valueOf(value));
+            case "lowstockthreshold" -> (row, value) -> row.setLowStockThreshold(Integer.valueOf(value));
+            default -> (row, value) -> { };
+        };
+    }
+
+    private void accept(ImportRun run, long line, ProductImportRow row) {
+        Category category = null;
+        String error = validate(row);
+        if (error == null) {
+            category = run.resolveCategory(row);
+            if (category == null) {
+                error = row.getCategoryId() != null || row.getCategory() != null
+                        ? "Unknown category: " + (row.getCategoryId() != null ? row.getCategoryId() : row.getCategory())
+                        : "category or categoryId is required";
+            }
+        }
+        if (error == null) {
+            // Two rows for one SKU in a batch would both insert it
+            Long firstLine = run.pendingSkus.putIfAbsent(row.getSku(), line);
+            if (firstLine != null) {
+                error = "SKU already imported from line " + firstLine;
+            }
+        }
+        if (error != null) {
+            run.reject(line, row.getSku(), error);
+            return;
+        }
+        run.pending.add(new PendingRow(line, row, category));
+        if (run.pending.size() >= batchSize) {
+            flush(run);
+        }
+    }
+
+    private static String validate(ProductImportRow row) {
+        if (row.getSku() == null || row.getSku().isBlank()) {
+            return "sku is required";
+        }
+        if (row.getSku().length() > MAX_TEXT_LENGTH) {
+            return "sku is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (row.getName() == null || row.getName().isBlank()) {
+            return "name is required";
+        }
+        if (row.getName().length() > MAX_TEXT_LENGTH) {
+            return "name is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (row.getImageUrl() != null && row.getImageUrl().length() > MAX_TEXT_LENGTH) {
+            return "imageUrl is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (row.getPrice() == null) {
+            return "price is required";
+        }
+        if (row.getPrice().signum() < 0 || row.getPrice().compareTo(MAX_PRICE) > 0) {
+            return "price must be between 0 and " + MAX_PRICE;
+        }
+        if (row.getPrice().stripTrailingZeros().scale() > 2) {
+            return "price has more than 2 decimal places";
+        }
+        if (row.getQuantity() != null && row.getQuantity() < 0) {
+            return "quantity must not be negative";
+        }
+        if (row.getLowStockThreshold() != null && row.getLowStockThreshold() < 0) {
+            return "lowStockThreshold must not be negative";
+        }
+        return null;
+    }
+
+    private void flush(ImportRun run) {
+        if (run.pending.isEmpty()) {
+            return;
+        }
+        List<PendingRow> batch = List.copyOf(run.pending);
+        run.pending.clear();
+        run.pendingSkus.clear();
+        try {
+            BatchResult result = transactionTemplate.execute(status -> write(batch));
+            run.record(result);
+        } catch (DataAccessException e) {
+            // Replay one row per transaction to pin the failure on the rows that caused it
+            logger.warn("Import batch of {} rows failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (PendingRow row : batch) {
+                try {
+                    run.record(transactionTemplate.execute(status -> write(List.of(row))));
+                } catch (DataAccessException rowFailure) {
+                    run.reject(row.line, row.row.getSku(), "Could not be written: " + rootMessage(rowFailure));
+                }
+            }
+        }
+    }
+
+    private BatchResult write(List<PendingRow> batch) {
+        Map<String, long[]> stocked = new HashMap<>();
+        namedParameterJdbcTemplate.query(FIND_STOCKED_SKUS,
+                Map.of("skus", batch.stream().map(row -> row.row.getSku()).toList()),
+                rs -> {
+                    stocked.put(rs.getString(1), new long[] {rs.getLong(2), rs.getLong(3)});
+                });
+
+        List<PendingRow> inserts = new ArrayList<>();
+        List<PendingRow> updates = new ArrayList<>();
+        for (PendingRow row : batch) {
+            long[] existing = stocked.get(row.row.getSku());
+            if (existing == null) {
+                inserts.add(row);
+            } else {
+                row.productId = existing[0];
+                row.previousCategoryId = existing[1];
+                updates.add(row);
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PRODUCT, rows(updates, (ps, row) -> {
+                setProductColumns(ps, row);
+                ps.setLong(6, row.productId);
+            }));
+            jdbcTemplate.batchUpdate(UPDATE_INVENTORY, rows(updates, (ps, row) -> {
+                ps.setObject(1, row.row.getQuantity(), Types.INTEGER);
+                ps.setObject(2, row.row.getLowStockThreshold(), Types.INTEGER);
+                ps.setTimestamp(3, now);
+                ps.setLong(4, row.productId);
+            }));
+        }
+        if (!inserts.isEmpty()) {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_PRODUCT, new String[] {"product_id"}),
+                    rows(inserts, this::setProductColumns), keys);
+            List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < inserts.size(); i++) {
+                inserts.get(i).productId = ((Number) generated.get(i).values().iterator().next()).longValue();
+            }
+            jdbcTemplate.batchUpdate(INSERT_INVENTORY, rows(inserts, (ps, row) -> {
+                ps.setLong(1, row.productId);
+                ps.setInt(2, row.row.getQuantity() != null ? row.row.getQuantity() : 0);
+                ps.setInt(3, row.row.getLowStockThreshold() != null ? row.row.getLowStockThreshold() : DEFAULT_LOW_STOCK_THRESHOLD);
+                ps.setTimestamp(4, now);
+                ps.setTimestamp(5, now);
+                ps.setString(6, row.row.getSku());
+            }));
+        }
+
+        List<ProductChangedEvent> changes = new ArrayList<>(batch.size());
+        for (PendingRow row : inserts) {
+            changes.add(ProductChangedEvent.created(toProduct(row)));
+        }
+        for (PendingRow row : updates) {
+            changes.add(ProductChangedEvent.updated(toProduct(row), row.previousCategoryId));
+        }
+        eventPublisher.publishEvent(new ProductsImportedEvent(changes));
+        return new BatchResult(inserts.size(), updates.size());
+    }
+
+    private void setProductColumns(PreparedStatement ps, PendingRow row) throws SQLException {
+        ps.setString(1, row.row.getName());
+        ps.setString(2, row.row.getDescription());
+        ps.setBigDecimal(3, row.row.getPrice());
+        ps.setString(4, row.row.getImageUrl());
+        ps.setLong(5, row.category.getCategoryId());
+    }
+
+    // The event payload mirrors what was written; listeners only read it
+    private static Product toProduct(PendingRow row) {
+        Product product = new Product(row.row.getName(), row.row.getDescription(), row.row.getPrice(),
+                row.row.getImageUrl(), row.category);
+        product.setProductId(row.productId);
+        product.setInventory(new Inventory(product, row.row.getQuantity(), row.row.getLowStockThreshold(),
+                null, null, row.row.getSku()));
+        return product;
+    }
+
+    private static BatchPreparedStatementSetter rows(List<PendingRow> rows, RowBinder binder) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                binder.bind(ps, rows.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        };
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(PreparedStatement ps, PendingRow row) throws SQLException;
+    }
+
+    private static final class PendingRow {
+        private final long line;
+        private final ProductImportRow row;
+        private final Category category;
+        private long productId;
+        private Long previousCategoryId;
+
+        private PendingRow(long line, ProductImportRow row, Category category) {
+            this.line = line;
+            this.row = row;
+            this.category = category;
+        }
+    }
+
+    private record BatchResult(int created, int updated) {
+    }
+
+    private final class ImportRun {
+        private final ProductImportReport report = new ProductImportReport();
+        private final Map<Long, Category> categoriesById = new HashMap<>();
+        private final Map<String, Category> categoriesByName = new HashMap<>();
+        // SKU -> line it appeared on, for the rows in pending
+        private final Map<String, Long> pendingSkus = new HashMap<>();
+        private final List<PendingRow> pending = new ArrayList<>(batchSize);
+
+        private ImportRun(List<Category> categories) {
+            for (Category category : categories) {
+                categoriesById.put(category.getCategoryId(), category);
+                categoriesByName.put(category.getName().toLowerCase(Locale.ROOT), category);
+            }
+        }
+
+        private Category resolveCategory(ProductImportRow row) {
+            if (row.getCategoryId() != null) {
+                return categoriesById.get(row.getCategoryId());
+            }
+            return row.getCategory() != null ? categoriesByName.get(row.getCategory().trim().toLowerCase(Locale.ROOT)) : null;
+        }
+
+        private void record(BatchResult result) {
+            report.setCreated(report.getCreated() + result.created());
+            report.setUpdated(report.getUpdated() + result.updated());
+            report.setProcessed(report.getProcessed() + result.created() + result.updated());
+        }
+
+        private void reject(long line, String sku, String message) {
+            report.setFailed(report.getFailed() + 1);
+            report.setProcessed(report.getProcessed() + 1);
+            if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+                report.getErrors().add(new ProductImportReport.RowError(line, sku, message));
+            } else {
+                report.setErrorsTruncated(true);
+            }
+        }
+    }
+}
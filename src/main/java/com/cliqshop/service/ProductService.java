@@ -1,17 +1,31 @@
 package com.cliqshop.service;
 
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.FacetedProductPage;
 import com.cliqshop.dto.ProductDto;
+import com.cliqshop.dto.ProductSort;
+import com.cliqshop.dto.ProductSummaryDto;
+import com.cliqshop.dto.SuggestionDto;
 import com.cliqshop.entity.Product;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface ProductService {
     List<Product> getAllProducts();
+    CursorPage<ProductSummaryDto> getProductPage(ProductSort sort, String cursor, int size);
     Product getProductById(Long id);
     Optional<Product> findById(Long id); 
+    Map<Long, Product> findAllById(Collection<Long> ids);
     List<Product> getProductsByCategory(Long categoryId);
-    List<Product> searchProductsByName(String name);
+    List<ProductSummaryDto> searchProducts(String query, int limit);
+    List<SuggestionDto> suggest(String prefix, int limit);
+    FacetedProductPage filterProducts(Set<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                      boolean inStockOnly, String cursor, int limit);
     Product createProduct(ProductDto productDto);
     Product updateProduct(Long id, ProductDto productDto);
     void deleteProduct(Long id);
@@ -1,35 +1,130 @@
 package com.cliqshop.service;
 
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.FacetedProductPage;
 import com.cliqshop.dto.ProductDto;
+import com.cliqshop.dto.ProductSort;
+import com.cliqshop.dto.ProductSummaryDto;
+import com.cliqshop.dto.SuggestionDto;
 import com.cliqshop.entity.Category;
 import com.cliqshop.entity.Product;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.exception.InvalidRequestException;
 import com.cliqshop.exception.ResourceNotFoundException;
+import com.cliqshop.exception.ServiceUnavailableException;
 import com.cliqshop.repository.CategoryRepository;
 import com.cliqshop.repository.ProductRepository;
+import com.cliqshop.search.ProductFacetIndex;
+import com.cliqshop.search.ProductSearchIndex;
+import com.cliqshop.search.SuggestionIndex;
 import com.cliqshop.service.ProductService;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class 	ProductServiceImpl implements ProductService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private SuggestionIndex suggestionIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LoadingCache<Long, Product> productCache;
+
     @Override
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
 
+    @Override
+    public CursorPage<ProductSummaryDto> getProductPage(ProductSort sort, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page exists without a count query
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<ProductSummaryDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = switch (sort) {
+                case ID -> productRepository.findSummariesOrderById(limit);
+                case PRICE_ASC -> productRepository.findSummariesOrderByPriceAsc(limit);
+                case PRICE_DESC -> productRepository.findSummariesOrderByPriceDesc(limit);
+                case NAME -> productRepository.findSummariesOrderByName(limit);
+            };
+        } else {
+            String[] position = CursorCodec.decode(cursor, sort.name(), 2);
+            Long afterId = parseCursorId(position[0]);
+            rows = switch (sort) {
+                case ID -> productRepository.findSummariesAfterId(afterId, limit);
+                case PRICE_ASC -> productRepository.findSummariesAfterPriceAsc(parseCursorPrice(position[1]), afterId, limit);
+                case PRICE_DESC -> productRepository.findSummariesAfterPriceDesc(parseCursorPrice(position[1]), afterId, limit);
+                case NAME -> productRepository.findSummariesAfterName(position[1], afterId, limit);
+            };
+        }
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+
+        List<ProductSummaryDto> page = new ArrayList<>(rows.subList(0, pageSize));
+        ProductSummaryDto last = page.get(pageSize - 1);
+        String sortKey = switch (sort) {
+            case ID -> "";
+            case PRICE_ASC, PRICE_DESC -> last.getPrice().toPlainString();
+            case NAME -> last.getName();
+        };
+        String nextCursor = CursorCodec.encode(sort.name(), String.valueOf(last.getProductId()), sortKey);
+        return new CursorPage<>(page, nextCursor);
+    }
+
+    private Long parseCursorId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+
+    private BigDecimal parseCursorPrice(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+
     @Override
     public Product getProductById(Long id) {
-        return productRepository.findById(id)
+        return findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
     }
 
@@ -39,8 +134,61 @@ public class 	ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public List<Product> searchProductsByName(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+    public List<ProductSummaryDto> searchProducts(String query, int limit) {
+        int resultLimit = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(query, resultLimit);
+        }
+
+        // The index is still loading right after startup; fall back to the database
+        return productRepository.findByNameContainingIgnoreCase(query).stream()
+                .limit(resultLimit)
+                .map(this::toSummary)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        int resultLimit = Math.max(1, Math.min(limit, SuggestionIndex.TOP_K));
+        List<SuggestionDto> suggestions = new ArrayList<>(suggestionIndex.suggest(prefix, resultLimit));
+        if (suggestions.size() >= resultLimit || !productSearchIndex.isReady()) {
+            return suggestions;
+        }
+
+        // The trie only completes names from their first word; top up with
+        // products that match the prefix further inside the name
+        Set<String> seen = new HashSet<>();
+        for (SuggestionDto suggestion : suggestions) {
+            seen.add(SuggestionIndex.normalizeKey(suggestion.getText()));
+        }
+        for (ProductSummaryDto product : productSearchIndex.search(prefix, resultLimit)) {
+            if (suggestions.size() >= resultLimit) {
+                break;
+            }
+            if (seen.add(SuggestionIndex.normalizeKey(product.getName()))) {
+                suggestions.add(new SuggestionDto(product.getName(), "PRODUCT", product.getProductId()));
+            }
+        }
+        return suggestions;
+    }
+
+    @Override
+    public FacetedProductPage filterProducts(Set<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                             boolean inStockOnly, String cursor, int limit) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new InvalidRequestException("minPrice must not be greater than maxPrice");
+        }
+        // Unlike search there is no cheap database fallback for the facet counts
+        if (!productFacetIndex.isReady()) {
+            throw new ServiceUnavailableException("Product filters are still loading, please retry shortly");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return productFacetIndex.filter(categoryIds, minPrice, maxPrice, inStockOnly, cursor, pageSize);
+    }
+
+    private ProductSummaryDto toSummary(Product product) {
+        return new ProductSummaryDto(product.getProductId(), product.getName(), product.getPrice(),
+                product.getImageUrl(), product.getCategory().getCategoryId(), product.getCategory().getName());
     }
 
     @Override
@@ -55,12 +203,15 @@ public class 	ProductServiceImpl implements ProductService {
         product.setImageUrl(productDto.getImageUrl());
         product.setCategory(category);
 
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.created(savedProduct));
+        return savedProduct;
     }
 
     @Override
     public Product updateProduct(Long id, ProductDto productDto) {
-        Product existingProduct = getProductById(id);
+        Product existingProduct = loadForUpdate(id);
+        Long previousCategoryId = existingProduct.getCategory().getCategoryId();
         Category category = categoryRepository.findById(productDto.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + productDto.getCategoryId()));
 
@@ -70,17 +221,43 @@ public class 	ProductServiceImpl implements ProductService {
         existingProduct.setImageUrl(productDto.getImageUrl());
         existingProduct.setCategory(category);
 
-        return productRepository.save(existingProduct);
+        Product savedProduct = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(savedProduct, previousCategoryId));
+        return savedProduct;
     }
 
     @Override
     public void deleteProduct(Long id) {
-        Product product = getProductById(id);
+        Product product = loadForUpdate(id);
         productRepository.delete(product);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id, product.getCategory().getCategoryId()));
     }
 
+    /**
+     * Reads through the product cache. Concurrent misses for the same id wait on
+     * one shared load instead of each querying the database. The cached product
+     * is never handed out; each caller gets its own copy to use as it likes.
+     */
     @Override
     public Optional<Product> findById(Long id) {
-        return productRepository.findById(id);
+        return Optional.ofNullable(productCache.get(id)).map(Product::copy);
+    }
+
+    /**
+     * Reads a set of products through the product cache; all misses are loaded
+     * together with one query. Unknown ids are absent from the result, and the
+     * products are copies like those from {@link #findById(Long)}.
+     */
+    @Override
+    public Map<Long, Product> findAllById(Collection<Long> ids) {
+        Map<Long, Product> products = new LinkedHashMap<>();
+        productCache.getAll(ids).forEach((id, product) -> products.put(id, product.copy()));
+        return products;
+    }
+
+    // Writes start from a managed instance with the current version, not a cached copy
+    private Product loadForUpdate(Long id) {
+        return productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
     }
 }
\ No newline at end of file
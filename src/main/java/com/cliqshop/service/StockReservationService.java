@@ -0,0 +1,263 @@
+package com.cliqshop.service;
+
+import com.cliqshop.entity.Order;
+import com.cliqshop.event.InventoryChangedEvent;
+import com.cliqshop.event.OrderChangedEvent;
+import com.cliqshop.exception.ConflictException;
+import com.cliqshop.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes an order's lines out of inventory when it is placed and puts them back
+ * if it is cancelled, fails payment, or stays unpaid past
+ * {@code order.reservation.ttl}.
+ *
+ * Stock is decremented with one conditional UPDATE per product, sent as a
+ * single JDBC batch inside the order transaction, so concurrent checkouts
+ * cannot oversell: a product without enough stock matches no row and the
+ * whole order rolls back. Products are updated in id order so two orders
+ * sharing products lock their inventory rows in the same order.
+ *
+ * The order row records whether it holds stock; releasing first clears that
+ * flag with a conditional update, so a cancel racing the expiry job returns
+ * the stock once.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final String RESERVE =
+            "UPDATE inventory SET quantity = quantity - ?, last_updated = ? WHERE product_id = ? AND quantity >= ?";
+    private static final String RESTOCK =
+            "UPDATE inventory SET quantity = quantity + ?, last_updated = ? WHERE product_id = ?";
+    private static final String ORDER_QUANTITIES =
+            "SELECT product_id, SUM(quantity) FROM order_items WHERE order_id = ? GROUP BY product_id";
+    private static final String STOCKED = "SELECT product_id FROM inventory WHERE product_id IN (:productIds)";
+    private static final String ORDER_OWNER = "SELECT user_id FROM orders WHERE order_id = ?";
+    private static final String STOCK_LEVELS =
+            "SELECT i.product_id, p.category_id, i.quantity FROM inventory i " +
+            "JOIN products p ON p.product_id = i.product_id WHERE i.product_id IN (:productIds)";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Value("${order.reservation.ttl:30m}")
+    private Duration ttl;
+
+    @Value("${order.reservation.expiry-interval:1m}")
+    private Duration expiryInterval;
+
+    @Value("${order.reservation.expiry-batch-size:200}")
+    private int expiryBatchSize;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService expiryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-reservation-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StockReservationService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        long millis = expiryInterval.toMillis();
+        expiryExecutor.scheduleWithFixedDelay(this::expireSafely, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryExecutor.shutdownNow();
+    }
+
+    /**
+     * Takes the given quantities, by product id, out of stock and returns when
+     * the reservation lapses if the order is not paid. Takes all or nothing:
+     * on a shortfall it throws {@link ConflictException} and leaves stock as
+     * it was. A product without an inventory row is not for sale and is
+     * rejected the same way, with its own message.
+     */
+    public LocalDateTime reserve(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        int[] updated = adjust(RESERVE, lines, true);
+        List<Map.Entry<Long, Integer>> taken = new ArrayList<>();
+        List<Long> refused = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            // Connector/J reports real counts for batched updates; anything else is treated as a shortfall
+            if (updated[i] == 1) {
+                taken.add(lines.get(i));
+            } else {
+                refused.add(lines.get(i).getKey());
+            }
+        }
+        if (!refused.isEmpty()) {
+            // Put back what was taken, so a caller that handles the conflict is not left short
+            if (!taken.isEmpty()) {
+                adjust(RESTOCK, taken, false);
+            }
+            // Only a failed reservation pays for telling a missing row from a short one
+            List<Long> stocked = namedParameterJdbcTemplate.queryForList(STOCKED,
+                    Map.of("productIds", refused), Long.class);
+            for (Long productId : refused) {
+                if (!stocked.contains(productId)) {
+                    throw new ConflictException("Product " + productId + " is not stocked");
+                }
+            }
+            throw new ConflictException("Not enough stock for product " + refused.get(0));
+        }
+        // Stock-level events for a placed order are published after commit by the order pipeline
+        return LocalDateTime.now().plus(ttl);
+    }
+
+    /**
+     * Returns an order's stock if it still holds any; returns whether it did.
+     * The caller updates its own copy of the order to match.
+     */
+    public boolean release(Long orderId) {
+        if (orderRepository.releaseReservation(orderId) == 0) {
+            return false;
+        }
+        restock(orderId);
+        return true;
+    }
+
+    /**
+     * Makes a paid order's reservation permanent; returns false if the order
+     * no longer holds stock, e.g. because it expired before payment arrived.
+     */
+    public boolean confirm(Long orderId) {
+        return orderRepository.confirmReservation(orderId) == 1;
+    }
+
+    /**
+     * Cancels unpaid orders whose reservation has lapsed, one transaction per
+     * order; returns how many were cancelled. Runs on the expiry thread, but
+     * may be called directly, e.g. from tests.
+     */
+    public int expire() {
+        int count = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> orderIds = orderRepository.findExpiredReservations(now, Limit.of(expiryBatchSize));
+            int cancelled = 0;
+            for (Long orderId : orderIds) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    if (orderRepository.expireReservation(orderId, now) == 0) {
+                        return false;
+                    }
+                    restock(orderId);
+                    orderOutbox.append(OrderChangedEvent.Type.RESERVATION_EXPIRED, orderId,
+                            jdbcTemplate.queryForObject(ORDER_OWNER, Long.class, orderId),
+                            Order.OrderStatus.CANCELLED, Order.PaymentStatus.PENDING);
+                    return true;
+                }))) {
+                    cancelled++;
+                }
+            }
+            count += cancelled;
+            // A full batch none of which could be cancelled would come back unchanged
+            if (orderIds.size() < expiryBatchSize || cancelled == 0) {
+                break;
+            }
+        }
+        if (count > 0) {
+            logger.info("Cancelled {} unpaid orders whose stock reservation expired", count);
+        }
+        return count;
+    }
+
+    private void expireSafely() {
+        try {
+            expire();
+        } catch (RuntimeException e) {
+            logger.error("Stock reservation expiry failed: {}", e.getMessage());
+        }
+    }
+
+    private void restock(Long orderId) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        jdbcTemplate.query(ORDER_QUANTITIES, rs -> {
+            quantities.put(rs.getLong(1), rs.getInt(2));
+        }, orderId);
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // A product whose stock record was deleted since has nothing to return to
+        adjust(RESTOCK, new ArrayList<>(quantities.entrySet()), false);
+        publishStockLevels(quantities.keySet());
+    }
+
+    // Both statements take (quantity, last_updated, product_id); RESERVE repeats the quantity in its guard
+    private int[] adjust(String sql, List<Map.Entry<Long, Integer>> lines, boolean guarded) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, line.getKey());
+                if (guarded) {
+                    ps.setInt(4, line.getValue());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+    }
+
+    /**
+     * Publishes the current stock level of each product. Product reads embed
+     * the stock level, so caches and the facet index need to hear about it.
+     */
+    public void publishStockLevels(Collection<Long> productIds) {
+        namedParameterJdbcTemplate.query(STOCK_LEVELS, Map.of("productIds", productIds), rs -> {
+            eventPublisher.publishEvent(new InventoryChangedEvent(rs.getLong(1), rs.getLong(2), rs.getInt(3)));
+        });
+    }
+}
@@ -0,0 +1,398 @@
+package com.cliqshop.service;
+
+import com.cliqshop.cart.CartJournal;
+import com.cliqshop.cart.CartState;
+import com.cliqshop.cart.CartStore;
+import com.cliqshop.dto.CartBatchRequest.CartOperation;
+import com.cliqshop.dto.CartDto;
+import com.cliqshop.dto.CartItemDto;
+import com.cliqshop.entity.Cart;
+import com.cliqshop.entity.CartItem;
+import com.cliqshop.entity.Product;
+import com.cliqshop.event.CartsSweptEvent;
+import com.cliqshop.exception.ResourceNotFoundException;
+import com.cliqshop.repository.CartRepository;
+import com.cliqshop.repository.ProductRepository;
+import com.cliqshop.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind cart mode, enabled with {@code cart.write-behind.enabled=true}.
+ * Mutations apply to a resident {@link CartState}, are appended to the
+ * {@link CartJournal} and acknowledged once the journal is on disk; the
+ * database sees each dirty cart once per flush interval however many times it
+ * changed.
+ *
+ * On startup the journal is replayed into the store, so carts acknowledged
+ * before a crash are flushed by the first cycle. Cart and item ids are
+ * {@code null} in responses until the cart has been flushed once.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+public class WriteBehindCartService implements CartService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartService.class);
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartJournal cartJournal;
+
+    @Value("${cart.write-behind.flush-interval:2s}")
+    private Duration flushInterval;
+
+    @Value("${cart.write-behind.batch-size:200}")
+    private int batchSize;
+
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readTemplate;
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // One flush at a time, so two transactions never write the same cart
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WriteBehindCartService(PlatformTransactionManager transactionManager) {
+        // Flushes commit on their own even when flushAll is called inside a transaction: a
+        // flushed cart is marked clean, so its write must not roll back with the caller's
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        Map<Long, CartState> recovered = cartJournal.replay();
+        for (CartState state : recovered.values()) {
+            state.markDirty();
+            cartStore.putIfAbsent(state);
+            dirty.add(state.getUserId());
+        }
+        if (!recovered.isEmpty()) {
+            logger.info("Recovered {} unflushed carts from the cart journal", recovered.size());
+        }
+        long interval = flushInterval.toMillis();
+        flushExecutor.scheduleWithFixedDelay(this::flushAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        flushAll();
+        cartJournal.close();
+    }
+
+    @Override
+    public CartDto getCartByUserId(Long userId) {
+        CartState state = resident(userId);
+        synchronized (state) {
+            // A user without a cart, e.g. one swept as abandoned, sees an empty one
+            return convertToDto(state);
+        }
+    }
+
+    @Override
+    public CartDto addToCart(Long userId, Long productId, int quantity) {
+        Product product = productService.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+        return mutate(userId, true, state -> state.addLine(productId, product.getPrice(), product.getName(),
+                product.getImageUrl(), quantity));
+    }
+
+    @Override
+    public CartDto removeCartItem(Long userId, Long productId) {
+        return mutate(userId, false, state -> state.removeLine(productId));
+    }
+
+    @Override
+    public CartDto updateCartItemQuantity(Long userId, Long productId, int quantity) {
+        return mutate(userId, false, state -> state.updateQuantity(productId, quantity));
+    }
+
+    @Override
+    public void clearCart(Long userId) {
+        mutate(userId, false, CartState::clear);
+    }
+
+    @Override
+    public CartDto applyBatch(Long userId, List<CartOperation> operations) {
+        CartBatches.validate(operations);
+        Map<Long, Product> products = CartBatches.productsToAdd(operations, productService);
+        // The whole batch is one mutation: one journal record, one durable wait
+        return mutate(userId, CartBatches.hasAdd(operations), state -> {
+            for (CartOperation operation : operations) {
+                Long productId = operation.getProductId();
+                switch (operation.getType()) {
+                    case ADD -> {
+                        Product product = products.get(productId);
+                        state.addLine(productId, product.getPrice(), product.getName(), product.getImageUrl(),
+                                operation.getQuantity());
+                    }
+                    case UPDATE -> state.updateQuantity(productId, operation.getQuantity());
+                    case REMOVE -> state.removeLine(productId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops resident copies of swept carts. A cart changed since it was last
+     * flushed is dirty and stays; its next flush writes it back.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCartsSwept(CartsSweptEvent event) {
+        for (Long userId : event.getUserIds()) {
+            CartState state = cartStore.get(userId);
+            if (state != null && state.tryEvict()) {
+                cartStore.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * One write-behind cycle: rotate the journal, write every dirty cart, then
+     * drop the journal segments those writes made redundant.
+     */
+    public void flushAll() {
+        flushLock.lock();
+        try {
+            long segment = cartJournal.rotate();
+            List<Long> userIds = new ArrayList<>(dirty);
+            dirty.removeAll(userIds);
+            List<Long> failed = flush(userIds);
+            // Carts that could not be written are copied forward so the old segments can go
+            for (Long userId : failed) {
+                CartState state = cartStore.get(userId);
+                if (state != null) {
+                    long ticket;
+                    synchronized (state) {
+                        ticket = cartJournal.append(state);
+                    }
+                    cartJournal.awaitDurable(ticket);
+                }
+            }
+            cartJournal.deleteSegmentsBefore(segment);
+        } catch (RuntimeException e) {
+            logger.error("Cart write-behind flush failed: {}", e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private CartDto mutate(Long userId, boolean create, Consumer<CartState> change) {
+        while (true) {
+            CartState state = resident(userId);
+            long ticket;
+            CartDto dto;
+            synchronized (state) {
+                if (state.isEvicted()) {
+                    // Lost a race with eviction; the next lookup loads a fresh copy
+                    continue;
+                }
+                if (!state.exists() && !create) {
+                    throw new ResourceNotFoundException("Cart not found for user id: " + userId);
+                }
+                long revision = state.getRevision();
+                change.accept(state);
+                if (state.getRevision() == revision) {
+                    return convertToDto(state);
+                }
+                dirty.add(userId);
+                ticket = cartJournal.append(state);
+                dto = convertToDto(state);
+            }
+            cartJournal.awaitDurable(ticket);
+            return dto;
+        }
+    }
+
+    private CartState resident(Long userId) {
+        CartState state = cartStore.get(userId);
+        if (state != null) {
+            return state;
+        }
+        return cartStore.putIfAbsent(load(userId));
+    }
+
+    private CartState load(Long userId) {
+        return readTemplate.execute(status -> {
+            Cart cart = cartRepository.findWithItemsByUserId(userId).orElse(null);
+            if (cart == null) {
+                if (!userRepository.existsById(userId)) {
+                    throw new ResourceNotFoundException("User not found with id: " + userId);
+                }
+                return new CartState(userId, null, false);
+            }
+            CartState state = new CartState(userId, cart.getCartId(), true);
+            for (CartItem item : cart.getItems()) {
+                if (item.getUnitPrice() == null) {
+                    item.snapshot(item.getProduct());
+                }
+                state.restoreLine(new CartState.Line(item.getProductId(), item.getCartItemId(), item.getQuantity(),
+                        item.getUnitPrice(), item.getProductName(), item.getProductImageUrl()));
+            }
+            return state;
+        });
+    }
+
+    // Returns the users whose carts could not be written; they are dirty again
+    private List<Long> flush(List<Long> userIds) {
+        List<Long> failed = new ArrayList<>();
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<Snapshot> batch = new ArrayList<>();
+            for (Long userId : userIds.subList(from, Math.min(from + batchSize, userIds.size()))) {
+                CartState state = cartStore.get(userId);
+                if (state != null) {
+                    synchronized (state) {
+                        batch.add(new Snapshot(state));
+                    }
+                }
+            }
+            try {
+                applyFlushed(batch, transactionTemplate.execute(status -> write(batch)));
+            } catch (RuntimeException batchFailure) {
+                // Find the cart that broke the batch and write the rest one by one
+                for (Snapshot snapshot : batch) {
+                    try {
+                        applyFlushed(List.of(snapshot), transactionTemplate.execute(status -> write(List.of(snapshot))));
+                    } catch (RuntimeException e) {
+                        logger.error("Could not flush cart for user {}: {}", snapshot.userId, e.getMessage());
+                        dirty.add(snapshot.userId);
+                        failed.add(snapshot.userId);
+                    }
+                }
+            }
+        }
+        return failed;
+    }
+
+    private Map<Long, Cart> write(List<Snapshot> snapshots) {
+        List<Long> userIds = snapshots.stream().map(snapshot -> snapshot.userId).collect(Collectors.toList());
+        Map<Long, Cart> carts = new HashMap<>();
+        for (Cart cart : cartRepository.findByUser_UserIdIn(userIds)) {
+            carts.put(cart.getUser().getUserId(), cart);
+        }
+        for (Snapshot snapshot : snapshots) {
+            Cart cart = carts.get(snapshot.userId);
+            if (cart == null) {
+                cart = new Cart(userRepository.getReferenceById(snapshot.userId));
+                carts.put(snapshot.userId, cart);
+            }
+            Map<Long, CartItem> stale = new HashMap<>();
+            for (CartItem item : cart.getItems()) {
+                stale.put(item.getProductId(), item);
+            }
+            for (CartState.Line line : snapshot.lines) {
+                CartItem item = stale.remove(line.getProductId());
+                if (item == null) {
+                    item = new CartItem();
+                    item.setCart(cart);
+                    item.setProduct(productRepository.getReferenceById(line.getProductId()));
+                    cart.getItems().add(item);
+                }
+                item.setQuantity(line.getQuantity());
+                item.setUnitPrice(line.getUnitPrice());
+                item.setProductName(line.getProductName());
+                item.setProductImageUrl(line.getProductImageUrl());
+            }
+            cart.getItems().removeAll(stale.values());
+            cart.setTotalPrice(snapshot.totalPrice);
+            cart.touch();
+        }
+        cartRepository.saveAll(carts.values());
+        cartRepository.flush();
+        return carts;
+    }
+
+    private void applyFlushed(List<Snapshot> snapshots, Map<Long, Cart> carts) {
+        for (Snapshot snapshot : snapshots) {
+            Cart cart = carts.get(snapshot.userId);
+            CartState state = cartStore.get(snapshot.userId);
+            if (cart == null || state == null) {
+                continue;
+            }
+            Map<Long, Long> itemIds = new HashMap<>();
+            for (CartItem item : cart.getItems()) {
+                itemIds.put(item.getProductId(), item.getCartItemId());
+            }
+            synchronized (state) {
+                state.flushed(snapshot.revision, cart.getCartId(), itemIds);
+            }
+        }
+    }
+
+    private CartDto convertToDto(CartState state) {
+        CartDto cartDto = new CartDto();
+        cartDto.setCartId(state.getCartId());
+        cartDto.setUserId(state.getUserId());
+        cartDto.setTotalPrice(state.getTotalPrice());
+
+        List<CartItemDto> itemDtos = new ArrayList<>();
+        for (CartState.Line line : state.getLines()) {
+            itemDtos.add(new CartItemDto(line.getCartItemId(), line.getProductId(), line.getProductName(),
+                    line.getUnitPrice(), line.getProductImageUrl(), line.getQuantity(), line.getLineTotal()));
+        }
+        cartDto.setItems(itemDtos);
+        return cartDto;
+    }
+
+    // What a flush writes, copied under the state's monitor
+    private static final class Snapshot {
+        private final Long userId;
+        private final long revision;
+        private final List<CartState.Line> lines;
+        private final BigDecimal totalPrice;
+
+        private Snapshot(CartState state) {
+            this.userId = state.getUserId();
+            this.revision = state.getRevision();
+            this.lines = state.getLines();
+            this.totalPrice = state.getTotalPrice();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.cliqshop.websocket;
+
+import com.cliqshop.event.OrderChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OrderUpdateHandler {
+
+    // One topic per user, e.g. /topic/orders/42
+    private static final String ORDER_UPDATE_DESTINATION = "/topic/orders/";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    public void notifyOrderPlaced(Long userId, Long orderId) {
+        messagingTemplate.convertAndSend(ORDER_UPDATE_DESTINATION + userId,
+            new OrderUpdateMessage("PLACED", orderId));
+    }
+
+    public void notifyOrderChanged(OrderChangedEvent event) {
+        messagingTemplate.convertAndSend(ORDER_UPDATE_DESTINATION + event.getUserId(),
+            new OrderUpdateMessage(event.getType().name(), event.getOrderId(), event.getEventId(),
+                event.getStatus() != null ? event.getStatus().name() : null,
+                event.getPaymentStatus() != null ? event.getPaymentStatus().name() : null));
+    }
+}
@@ -0,0 +1,37 @@
+package com.cliqshop.websocket;
+
+public class OrderUpdateMessage {
+    private String action;
+    private Long orderId;
+    // Set for changes relayed from the order outbox; a client may see the same eventId twice
+    private Long eventId;
+    private String status;
+    private String paymentStatus;
+
+    public OrderUpdateMessage() {}
+
+    public OrderUpdateMessage(String action, Long orderId) {
+        this.action = action;
+        this.orderId = orderId;
+    }
+
+    public OrderUpdateMessage(String action, Long orderId, Long eventId, String status, String paymentStatus) {
+        this.action = action;
+        this.orderId = orderId;
+        this.eventId = eventId;
+        this.status = status;
+        this.paymentStatus = paymentStatus;
+    }
+
+    // Getters and Setters
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    public Long getEventId() { return eventId; }
+    public void setEventId(Long eventId) { this.eventId = eventId; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getPaymentStatus() { return paymentStatus; }
+    public void setPaymentStatus(String paymentStatus) { this.paymentStatus = paymentStatus; }
+}
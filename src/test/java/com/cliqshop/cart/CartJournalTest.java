@@ -0,0 +1,102 @@
+package com.cliqshop.cart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cart journal replay: the last record per user wins, a record torn by a
+ * crash mid-write is dropped while the records before it are kept, and
+ * segments deleted after a flush are no longer replayed.
+ */
+class CartJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayKeepsTheLastRecordPerUser() {
+        try (CartJournal journal = new CartJournal(directory, false, objectMapper)) {
+            journal.append(cart(1L, 2));
+            journal.append(cart(2L, 1));
+            journal.append(cart(1L, 5));
+        }
+
+        try (CartJournal reopened = new CartJournal(directory, false, objectMapper)) {
+            Map<Long, CartState> replayed = reopened.replay();
+            assertEquals(List.of(1L, 2L), List.copyOf(replayed.keySet()));
+            assertEquals(5, quantity(replayed.get(1L)));
+            assertEquals(1, quantity(replayed.get(2L)));
+        }
+    }
+
+    @Test
+    void replayIgnoresATruncatedLastRecord() throws IOException {
+        try (CartJournal journal = new CartJournal(directory, false, objectMapper)) {
+            journal.append(cart(1L, 2));
+            journal.append(cart(2L, 1));
+            journal.append(cart(1L, 5));
+        }
+        // A crash in the middle of the last write
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 12);
+        }
+
+        try (CartJournal reopened = new CartJournal(directory, false, objectMapper)) {
+            Map<Long, CartState> replayed = reopened.replay();
+            assertEquals(2, replayed.size());
+            assertEquals(2, quantity(replayed.get(1L)));
+            assertEquals(1, quantity(replayed.get(2L)));
+        }
+    }
+
+    @Test
+    void rotatedSegmentsAreGoneOnceDeleted() {
+        try (CartJournal journal = new CartJournal(directory, false, objectMapper)) {
+            journal.append(cart(1L, 2));
+            long segment = journal.rotate();
+            journal.append(cart(2L, 1));
+            journal.deleteSegmentsBefore(segment);
+        }
+
+        try (CartJournal reopened = new CartJournal(directory, false, objectMapper)) {
+            Map<Long, CartState> replayed = reopened.replay();
+            assertEquals(List.of(2L), List.copyOf(replayed.keySet()));
+            assertTrue(replayed.get(2L).exists());
+        }
+    }
+
+    private static CartState cart(Long userId, int quantity) {
+        CartState state = new CartState(userId, null, false);
+        state.addLine(10L, new BigDecimal("2.50"), "Product 10", null, quantity);
+        return state;
+    }
+
+    private static int quantity(CartState state) {
+        return state.getLines().get(0).getQuantity();
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+}
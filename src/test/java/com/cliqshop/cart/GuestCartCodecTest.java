@@ -0,0 +1,104 @@
+package com.cliqshop.cart;
+
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.security.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guest cart tokens: lines survive a roundtrip in order, any changed byte or
+ * a token signed with another key is rejected, and an expired token reads as
+ * an empty cart.
+ */
+class GuestCartCodecTest {
+
+    private GuestCartCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        codec = codec("guest-cart-codec-test-key-0123456789abcdef", Duration.ofDays(30));
+    }
+
+    @Test
+    void roundtripKeepsLinesInOrder() {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(42L, 3);
+        lines.put(7L, GuestCartCodec.MAX_QUANTITY);
+        lines.put(300_000L, 1);
+        String token = codec.encode(lines);
+
+        assertEquals(List.copyOf(lines.entrySet()), List.copyOf(codec.decode(token).entrySet()));
+        GuestCartCodec.GuestCart cart = codec.read(token);
+        assertEquals(32, cart.id().length());
+        assertTrue(cart.expiresAt().isAfter(Instant.now().plus(Duration.ofDays(29))));
+    }
+
+    @Test
+    void distinctTokensHaveDistinctIds() {
+        assertNotEquals(codec.read(codec.encode(Map.of(1L, 1))).id(), codec.read(codec.encode(Map.of(1L, 2))).id());
+    }
+
+    @Test
+    void anyTamperedByteIsRejected() {
+        byte[] bytes = Base64.getUrlDecoder().decode(codec.encode(Map.of(42L, 3, 7L, 1)));
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] tampered = bytes.clone();
+            tampered[i] ^= 0x01;
+            String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tampered);
+            assertThrows(InvalidRequestException.class, () -> codec.decode(token), "byte " + i);
+        }
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        GuestCartCodec other = codec("another-guest-cart-test-key-0123456789abcdef", Duration.ofDays(30));
+        String token = other.encode(Map.of(42L, 3));
+        assertThrows(InvalidRequestException.class, () -> codec.decode(token));
+    }
+
+    @Test
+    void expiredTokenIsAnEmptyCart() {
+        GuestCartCodec expiring = codec("guest-cart-codec-test-key-0123456789abcdef", Duration.ofSeconds(-1));
+        GuestCartCodec.GuestCart cart = expiring.read(expiring.encode(Map.of(42L, 3)));
+        assertTrue(cart.lines().isEmpty());
+        assertNull(cart.id());
+    }
+
+    @Test
+    void missingTokenIsAnEmptyCart() {
+        assertTrue(codec.decode(null).isEmpty());
+        assertTrue(codec.decode("  ").isEmpty());
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        for (String token : List.of("not base64!", "c2hvcnQ", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA")) {
+            assertThrows(InvalidRequestException.class, () -> codec.decode(token), token);
+        }
+    }
+
+    private static GuestCartCodec codec(String secret, Duration ttl) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", secret);
+        jwtUtils.init();
+        GuestCartCodec codec = new GuestCartCodec();
+        ReflectionTestUtils.setField(codec, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(codec, "ttl", ttl);
+        codec.init();
+        return codec;
+    }
+}
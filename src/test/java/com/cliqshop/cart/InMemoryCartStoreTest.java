@@ -0,0 +1,68 @@
+package com.cliqshop.cart;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The bounded cart store evicts the least recently used clean carts, and lets
+ * itself grow past the bound rather than drop a dirty one.
+ */
+class InMemoryCartStoreTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedCleanCart() {
+        InMemoryCartStore store = new InMemoryCartStore(2);
+        CartState first = store.putIfAbsent(clean(1L));
+        CartState second = store.putIfAbsent(clean(2L));
+        // Touching the first makes the second the eldest
+        store.get(1L);
+
+        store.putIfAbsent(clean(3L));
+
+        assertEquals(2, store.size());
+        assertSame(first, store.get(1L));
+        assertNull(store.get(2L));
+        assertTrue(second.isEvicted());
+    }
+
+    @Test
+    void neverEvictsADirtyCart() {
+        InMemoryCartStore store = new InMemoryCartStore(2);
+        CartState first = store.putIfAbsent(dirty(1L));
+        CartState second = store.putIfAbsent(dirty(2L));
+        CartState third = store.putIfAbsent(dirty(3L));
+
+        assertEquals(3, store.size());
+        for (CartState state : new CartState[] {first, second, third}) {
+            assertSame(state, store.get(state.getUserId()));
+            assertFalse(state.isEvicted());
+        }
+
+        // Once flushed, the eldest is the first to go
+        first.flushed(first.getRevision(), 100L, Map.of());
+        store.putIfAbsent(clean(4L));
+
+        assertNull(store.get(1L));
+        assertTrue(first.isEvicted());
+        assertSame(second, store.get(2L));
+        assertSame(third, store.get(3L));
+    }
+
+    private static CartState clean(Long userId) {
+        return new CartState(userId, null, false);
+    }
+
+    private static CartState dirty(Long userId) {
+        CartState state = new CartState(userId, null, false);
+        state.addLine(10L, BigDecimal.ONE, "Product 10", null, 1);
+        return state;
+    }
+}
@@ -0,0 +1,212 @@
+package com.cliqshop.repository;
+
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Inventory;
+import com.cliqshop.entity.Product;
+import com.cliqshop.event.InventoryChangedEvent;
+import com.cliqshop.service.CatalogVersions;
+import com.cliqshop.service.CategoryService;
+import com.cliqshop.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the catalog, admin and report read paths against N+1 regressions by
+ * counting the JDBC statements Hibernate prepares for a single request,
+ * including any lazy loads triggered while the response is serialized.
+ * A matching If-None-Match is answered without any. Cached products are read without
+ * statements, and every reader gets its own copy.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-reads;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class CatalogReadQueryCountTest {
+
+    private static final int CATEGORIES = 3;
+    private static final int PRODUCTS_PER_CATEGORY = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private Statistics statistics;
+    private Long categoryId;
+    private Long productId;
+
+    @BeforeEach
+    void seedCatalog() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (categoryRepository.count() == 0) {
+            for (int c = 0; c < CATEGORIES; c++) {
+                Category category = categoryRepository.save(new Category("Category " + c, "Description " + c));
+                for (int p = 0; p < PRODUCTS_PER_CATEGORY; p++) {
+                    Product product = productRepository.save(new Product("Product " + c + "-" + p, "Description",
+                            BigDecimal.valueOf(10 + p), null, category));
+                    inventoryRepository.save(new Inventory(product, p, 2, LocalDateTime.now(),
+                            "A" + c, "SKU-" + c + "-" + p));
+                }
+            }
+        }
+        categoryId = categoryRepository.findAll().get(0).getCategoryId();
+        productId = productRepository.findByCategoryId(categoryId).get(0).getProductId();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void productListingIsOneStatement() throws Exception {
+        assertStatements(1, "/api/products");
+    }
+
+    @Test
+    void productDetailIsOneStatement() throws Exception {
+        assertStatements(1, "/api/products/" + productId);
+    }
+
+    @Test
+    void matchingETagIsAnsweredWithoutStatements() throws Exception {
+        for (String path : List.of("/api/products/" + productId, "/api/products/suggest?q=prod",
+                "/api/products/search?name=prod", "/api/categories")) {
+            String etag = mockMvc.perform(get(path)).andReturn().getResponse().getHeader("ETag");
+            statistics.clear();
+            mockMvc.perform(get(path).header("If-None-Match", etag)).andExpect(status().isNotModified());
+            assertEquals(0, statistics.getPrepareStatementCount(), "statements for a matching GET " + path);
+        }
+
+        // A committed change moves the tag at once
+        String path = "/api/products/" + productId;
+        String etag = mockMvc.perform(get(path)).andReturn().getResponse().getHeader("ETag");
+        catalogVersions.onInventoryChanged(new InventoryChangedEvent(productId, categoryId, 5));
+        mockMvc.perform(get(path).header("If-None-Match", etag)).andExpect(status().isOk());
+    }
+
+    @Test
+    void cachedProductsAreCopiesReadWithoutStatements() {
+        Product first = productService.getProductById(productId);
+        statistics.clear();
+        Product second = productService.getProductById(productId);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertNotSame(first, second);
+
+        first.setPrice(BigDecimal.ZERO);
+        first.getCategory().setName("Changed");
+        first.getInventory().setQuantity(-1);
+        Product third = productService.findAllById(List.of(productId)).get(productId);
+        assertEquals(second.getPrice(), third.getPrice());
+        assertEquals(second.getCategory().getName(), third.getCategory().getName());
+        assertEquals(second.getInventory().getQuantity(), third.getInventory().getQuantity());
+        assertSame(third, third.getInventory().getProduct());
+    }
+
+    @Test
+    void cachedCategoriesAreCopiesReadWithoutStatements() {
+        List<Category> first = categoryService.getAllCategories();
+        statistics.clear();
+        List<Category> second = categoryService.getAllCategories();
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertNotSame(first.get(0), second.get(0));
+
+        first.get(0).setName("Changed");
+        first.get(0).getProducts().clear();
+        Category third = categoryService.getAllCategories().get(0);
+        assertEquals(second.get(0).getName(), third.getName());
+        assertEquals(PRODUCTS_PER_CATEGORY, third.getProducts().size());
+        for (Product product : third.getProducts()) {
+            assertSame(third, product.getCategory());
+        }
+    }
+
+    @Test
+    void productNameLookupIsOneStatement() {
+        // The search endpoint falls back to this query until its index has loaded
+        assertEquals(PRODUCTS_PER_CATEGORY * CATEGORIES, productRepository.findByNameContainingIgnoreCase("product").size());
+        statistics.clear();
+        productRepository.findByNameContainingIgnoreCase("product").forEach(p -> p.getInventory().getQuantity());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void categoryListingIsOneStatement() throws Exception {
+        assertStatements(1, "/api/categories");
+    }
+
+    @Test
+    void categoryDetailIsOneStatement() throws Exception {
+        assertStatements(1, "/api/categories/" + categoryId);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminProductListingIsOneStatement() throws Exception {
+        assertStatements(1, "/api/admin/products");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminInventoryListingIsOneStatement() throws Exception {
+        assertStatements(1, "/api/admin/inventory");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminLowStockListingIsOneStatement() throws Exception {
+        assertStatements(1, "/api/admin/dashboard/low-stock-items");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void inventoryReportIsOneStatement() throws Exception {
+        assertStatements(1, "/api/admin/reports/inventory");
+    }
+
+    private void assertStatements(long expected, String path) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(path)).andExpect(status().isOk());
+        assertEquals(expected, statistics.getPrepareStatementCount(), "statements for GET " + path);
+    }
+}
@@ -0,0 +1,239 @@
+package com.cliqshop.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the bitmap against {@link BitSet}: set operations, cardinality and
+ * iteration across chunk boundaries, and the switch between array and bitmap
+ * containers in both directions.
+ */
+class CompressedBitmapTest {
+
+    private static final int CHUNK = 1 << 16;
+
+    @Test
+    void valuesOnChunkBoundariesLandInTheirOwnChunks() {
+        int[] values = {0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK - 1, 5 * CHUNK, Integer.MAX_VALUE};
+        CompressedBitmap bitmap = new CompressedBitmap();
+        // Out of order, so chunks are inserted in the middle as well as appended
+        for (int i = values.length - 1; i >= 0; i--) {
+            bitmap.add(values[i]);
+        }
+        bitmap.add(CHUNK);
+
+        assertEquals(values.length, bitmap.cardinality());
+        assertEquals(toList(values), toList(bitmap));
+        assertFalse(bitmap.contains(2));
+        assertFalse(bitmap.contains(CHUNK + 2));
+        assertEquals(CHUNK - 1, bitmap.nextSetBit(2));
+        assertEquals(5 * CHUNK, bitmap.nextSetBit(2 * CHUNK));
+        assertEquals(Integer.MAX_VALUE, bitmap.nextSetBit(5 * CHUNK + 1));
+        assertEquals(-1, new CompressedBitmap().nextSetBit(0));
+
+        for (int value : values) {
+            bitmap.remove(value);
+        }
+        bitmap.remove(3);
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+    }
+
+    @Test
+    void arrayBecomesBitmapPastTheLimitAndBackWellBelowIt() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        BitSet expected = new BitSet();
+        for (int i = 0; i < CompressedBitmap.MAX_ARRAY_SIZE; i++) {
+            bitmap.add(i * 2);
+            expected.set(i * 2);
+        }
+        assertEquals("ArrayContainer", containerType(bitmap, 0));
+        bitmap.add(0);
+        assertEquals("ArrayContainer", containerType(bitmap, 0));
+
+        bitmap.add(1);
+        expected.set(1);
+        assertEquals("BitmapContainer", containerType(bitmap, 0));
+        assertMatches(expected, bitmap);
+
+        // Stays a bitmap until at most half the limit is left
+        int value = 0;
+        while (expected.cardinality() > CompressedBitmap.MAX_ARRAY_SIZE / 2 + 1) {
+            value = expected.nextSetBit(value);
+            bitmap.remove(value);
+            expected.clear(value);
+        }
+        assertEquals("BitmapContainer", containerType(bitmap, 0));
+        value = expected.nextSetBit(value);
+        bitmap.remove(value);
+        expected.clear(value);
+        assertEquals("ArrayContainer", containerType(bitmap, 0));
+        assertMatches(expected, bitmap);
+
+        // The shrunk array still grows and converts again
+        for (int i = 0; i < CHUNK; i += 3) {
+            bitmap.add(i);
+            expected.set(i);
+        }
+        assertEquals("BitmapContainer", containerType(bitmap, 0));
+        assertMatches(expected, bitmap);
+    }
+
+    @Test
+    void operationsMatchBitSetForEveryContainerPairing() {
+        Random random = new Random(42);
+        // Per chunk: empty, sparse (array) or dense (bitmap), so every pairing occurs
+        int[] densities = {0, 100, CompressedBitmap.MAX_ARRAY_SIZE, 20_000};
+        for (int left : densities) {
+            for (int right : densities) {
+                BitSet a = new BitSet();
+                BitSet b = new BitSet();
+                CompressedBitmap x = fill(a, random, left, right);
+                CompressedBitmap y = fill(b, random, right, left);
+
+                BitSet and = (BitSet) a.clone();
+                and.and(b);
+                BitSet or = (BitSet) a.clone();
+                or.or(b);
+                String pairing = left + "/" + right;
+                assertMatches(and, x.and(y), "and " + pairing);
+                assertMatches(or, x.or(y), "or " + pairing);
+                assertEquals(and.cardinality(), x.andCardinality(y), "andCardinality " + pairing);
+                assertEquals(and.cardinality(), y.andCardinality(x), "andCardinality " + pairing);
+
+                // Operands are left unchanged
+                assertMatches(a, x, "left operand " + pairing);
+                assertMatches(b, y, "right operand " + pairing);
+            }
+        }
+    }
+
+    @Test
+    void resultsPickTheRepresentationForTheirSize() {
+        CompressedBitmap evens = new CompressedBitmap();
+        CompressedBitmap multiplesOfThree = new CompressedBitmap();
+        CompressedBitmap oddsAndMultiplesOf32 = new CompressedBitmap();
+        for (int i = 0; i < CHUNK; i++) {
+            if (i % 2 == 0) {
+                evens.add(i);
+            }
+            if (i % 3 == 0) {
+                multiplesOfThree.add(i);
+            }
+            if (i % 2 == 1 || i % 32 == 0) {
+                oddsAndMultiplesOf32.add(i);
+            }
+        }
+
+        // Two bitmaps whose intersection is still dense: multiples of six
+        CompressedBitmap sixes = evens.and(multiplesOfThree);
+        assertEquals("BitmapContainer", containerType(sixes, 0));
+        assertEquals(CHUNK / 6 + 1, sixes.cardinality());
+
+        // Two bitmaps whose intersection is sparse: multiples of 32
+        CompressedBitmap thirtyTwos = evens.and(oddsAndMultiplesOf32);
+        assertEquals("ArrayContainer", containerType(thirtyTwos, 0));
+        assertEquals(CHUNK / 32, thirtyTwos.cardinality());
+        assertTrue(thirtyTwos.contains(CHUNK - 32));
+
+        // Two arrays whose union is over the limit...
+        CompressedBitmap low = new CompressedBitmap();
+        CompressedBitmap high = new CompressedBitmap();
+        for (int i = 0; i < 3000; i++) {
+            low.add(i);
+            high.add(CHUNK - 1 - i);
+        }
+        assertEquals("ArrayContainer", containerType(low, 0));
+        CompressedBitmap union = low.or(high);
+        assertEquals("BitmapContainer", containerType(union, 0));
+        assertEquals(6000, union.cardinality());
+        // ...and two whose union is not
+        CompressedBitmap middle = new CompressedBitmap();
+        for (int i = 3000; i < CompressedBitmap.MAX_ARRAY_SIZE; i++) {
+            middle.add(i);
+        }
+        assertEquals("ArrayContainer", containerType(low.or(middle), 0));
+        assertEquals(CompressedBitmap.MAX_ARRAY_SIZE, low.or(middle).cardinality());
+    }
+
+    @Test
+    void iterationVisitsEveryValueInOrder() {
+        Random random = new Random(7);
+        BitSet expected = new BitSet();
+        CompressedBitmap bitmap = fill(expected, random, 20_000, 50);
+
+        List<Integer> viaForEach = new ArrayList<>();
+        bitmap.forEach(viaForEach::add);
+        List<Integer> viaNextSetBit = new ArrayList<>();
+        for (int value = bitmap.nextSetBit(0); value >= 0; value = bitmap.nextSetBit(value + 1)) {
+            viaNextSetBit.add(value);
+        }
+        List<Integer> fromBitSet = expected.stream().boxed().toList();
+        assertEquals(fromBitSet, viaForEach);
+        assertEquals(fromBitSet, viaNextSetBit);
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+    }
+
+    // Three chunks: the first and third with the given densities, the middle one empty
+    private static CompressedBitmap fill(BitSet expected, Random random, int first, int third) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        int[][] chunks = {{0, first}, {2, third}};
+        for (int[] chunk : chunks) {
+            for (int i = 0; i < chunk[1]; i++) {
+                int value = chunk[0] * CHUNK + random.nextInt(CHUNK);
+                bitmap.add(value);
+                expected.set(value);
+            }
+        }
+        // The last value of the chunk before the empty one, and the first of the one after
+        if (first > 0) {
+            bitmap.add(CHUNK - 1);
+            expected.set(CHUNK - 1);
+        }
+        if (third > 0) {
+            bitmap.add(2 * CHUNK);
+            expected.set(2 * CHUNK);
+        }
+        return bitmap;
+    }
+
+    private static void assertMatches(BitSet expected, CompressedBitmap actual) {
+        assertMatches(expected, actual, "");
+    }
+
+    private static void assertMatches(BitSet expected, CompressedBitmap actual, String message) {
+        List<Integer> values = new ArrayList<>();
+        actual.forEach(values::add);
+        assertEquals(expected.stream().boxed().toList(), values, message);
+        assertEquals(expected.cardinality(), actual.cardinality(), message);
+        assertEquals(expected.isEmpty(), actual.isEmpty(), message);
+    }
+
+    private static String containerType(CompressedBitmap bitmap, int index) {
+        Object[] containers = (Object[]) ReflectionTestUtils.getField(bitmap, "containers");
+        return containers[index].getClass().getSimpleName();
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static List<Integer> toList(CompressedBitmap bitmap) {
+        List<Integer> list = new ArrayList<>();
+        bitmap.forEach(list::add);
+        return list;
+    }
+}
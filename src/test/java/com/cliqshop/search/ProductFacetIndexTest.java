@@ -0,0 +1,72 @@
+package com.cliqshop.search;
+
+import com.cliqshop.dto.FacetedProductPage;
+import com.cliqshop.dto.ProductSummaryDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Deleting most of the catalog compacts the index: the ordinals of deleted
+ * products are reclaimed, facet counts stay right, and a cursor handed out
+ * before the compaction resumes after the product it named.
+ */
+class ProductFacetIndexTest {
+
+    private static final int PRODUCTS = 12_000;
+
+    @Test
+    void deletedOrdinalsAreReclaimedWithoutBreakingCursors() {
+        ProductFacetIndex index = new ProductFacetIndex();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            index.index(document(id), id % 2 == 0);
+        }
+        FacetedProductPage first = index.filter(null, null, null, false, null, 5);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(first.getItems()));
+
+        // Compacts once the 10,000th deletion leaves more tombstones than live products
+        for (long id = 6; id <= 11_000; id++) {
+            index.remove(id);
+        }
+
+        assertEquals(1_005, index.size());
+        assertEquals(2_000, documents(index).size());
+
+        FacetedProductPage next = index.filter(null, null, null, false, first.getNextCursor(), 5);
+        assertEquals(List.of(11_001L, 11_002L, 11_003L, 11_004L, 11_005L), ids(next.getItems()));
+        assertEquals(1_005, next.getTotal());
+
+        FacetedProductPage stocked = index.filter(Set.of(2L), null, new BigDecimal("100.00"), true, null, 1_000);
+        long expected = LongStream.concat(LongStream.rangeClosed(1, 5), LongStream.rangeClosed(11_001, PRODUCTS))
+                .filter(id -> id % 2 == 0 && id % 3 == 1 && id % 200 <= 100)
+                .count();
+        assertEquals(expected, stocked.getTotal());
+        assertEquals(expected, stocked.getItems().size());
+
+        // New products still go after everything indexed before them
+        index.index(document(PRODUCTS + 1), true);
+        FacetedProductPage last = index.filter(null, null, null, false, null, 1_006);
+        assertEquals(PRODUCTS + 1L, ids(last.getItems()).get(1_005));
+    }
+
+    // Three categories, prices spread over the first few bands
+    private static ProductFacetDocument document(long id) {
+        long categoryId = id % 3 + 1;
+        return new ProductFacetDocument(id, "Product " + id, BigDecimal.valueOf(id % 200, 0), null, categoryId,
+                "Category " + categoryId, null);
+    }
+
+    private static List<Long> ids(List<ProductSummaryDto> items) {
+        return items.stream().map(ProductSummaryDto::getProductId).toList();
+    }
+
+    private static List<?> documents(ProductFacetIndex index) {
+        return (List<?>) ReflectionTestUtils.getField(index, "documents");
+    }
+}
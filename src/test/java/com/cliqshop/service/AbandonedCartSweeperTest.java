@@ -0,0 +1,113 @@
+package com.cliqshop.service;
+
+import com.cliqshop.entity.Product;
+import com.cliqshop.event.CartsSweptEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sweeps in batches of two: carts idle past the TTL are deleted with their
+ * items, a batch per transaction and one event per batch, while recently
+ * changed carts and carts without a timestamp yet are kept.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:abandoned-cart-sweeper;DB_CLOSE_DELAY=-1",
+        "cart.sweeper.idle-ttl=30d",
+        "cart.sweeper.batch-size=2",
+        "cart.sweeper.pause=0ms"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+@RecordApplicationEvents
+class AbandonedCartSweeperTest {
+
+    @Autowired
+    private AbandonedCartSweeper sweeper;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private Product product;
+
+    @BeforeEach
+    void seed() {
+        product = fixtures.product(fixtures.category(), BigDecimal.TEN, 100);
+    }
+
+    @Test
+    void idleCartsAreDeletedInBatchesAndRecentOnesKept() {
+        List<Long> idle = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            idle.add(cartOf("Idle " + i, LocalDateTime.now().minusDays(31 + i)));
+        }
+        List<Long> recent = List.of(
+                cartOf("Recent", LocalDateTime.now().minusDays(29)),
+                cartOf("Just changed", LocalDateTime.now()),
+                // Predates updated_at: the sweep starts its clock instead of deleting it
+                cartOf("Untimed", null));
+
+        assertEquals(5, sweeper.sweep());
+
+        for (Long userId : idle) {
+            assertEquals(0, carts(userId));
+        }
+        for (Long userId : recent) {
+            assertEquals(1, carts(userId));
+            assertEquals(1, cartService.getCartByUserId(userId).getItems().size());
+        }
+        assertNotNull(jdbcTemplate.queryForObject(
+                "SELECT c.updated_at FROM carts c WHERE c.user_id = ?", LocalDateTime.class, recent.get(2)));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items ci "
+                + "LEFT JOIN carts c ON c.cart_id = ci.cart_id WHERE c.cart_id IS NULL", Integer.class));
+
+        List<List<Long>> swept = events.stream(CartsSweptEvent.class).map(CartsSweptEvent::getUserIds).toList();
+        assertEquals(List.of(2, 2, 1), swept.stream().map(List::size).toList());
+        assertTrue(swept.stream().flatMap(List::stream).toList().containsAll(idle));
+    }
+
+    @Test
+    void sweptUserStartsWithAnEmptyCart() {
+        Long userId = cartOf("Returning", LocalDateTime.now().minusDays(60));
+        sweeper.sweep();
+
+        assertTrue(cartService.getCartByUserId(userId).getItems().isEmpty());
+        assertEquals(1, cartService.addToCart(userId, product.getProductId(), 2).getItems().size());
+    }
+
+    // A user with a one-line cart last changed at updatedAt
+    private Long cartOf(String name, LocalDateTime updatedAt) {
+        Long userId = fixtures.customer(name).userId();
+        cartService.addToCart(userId, product.getProductId(), 1);
+        jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE user_id = ?", updatedAt, userId);
+        return userId;
+    }
+
+    private int carts(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE user_id = ?", Integer.class, userId);
+    }
+}
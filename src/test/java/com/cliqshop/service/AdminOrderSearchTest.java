@@ -0,0 +1,168 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.AdminOrderSummaryDto;
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.OrderSearchCriteria;
+import com.cliqshop.dto.OrderSearchSort;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.InvalidRequestException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.cliqshop.service.OrderFixtures.line;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that admin order search applies only the filters given, pages by
+ * cursor through every match exactly once in the requested order at one
+ * statement per page, and that the CSV export writes the same matches.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admin-order-search;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class AdminOrderSearchTest {
+
+    private static final int ORDERS = 30;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 9, 0);
+
+    @Autowired
+    private OrderSearchService orderSearchService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private Statistics statistics;
+    private Long userId;
+    private String email;
+    private final List<Seeded> seeded = new ArrayList<>();
+
+    // What each seeded order was set to; status cycles, totals repeat in threes
+    private record Seeded(Long orderId, Order.OrderStatus status, LocalDateTime orderDate, BigDecimal total) {
+    }
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        seeded.clear();
+        OrderFixtures.Customer customer = fixtures.customer("Search User");
+        userId = customer.userId();
+        email = customer.email();
+        Product product = fixtures.product(fixtures.category(), BigDecimal.TEN, 1000);
+
+        Order.OrderStatus[] statuses = {Order.OrderStatus.PENDING, Order.OrderStatus.PROCESSING,
+                Order.OrderStatus.SHIPPED};
+        for (int i = 0; i < ORDERS; i++) {
+            Long orderId = orderService.placeOrder(OrderFixtures.request(customer, line(product, 1))).getOrderId();
+            Order.OrderStatus status = statuses[i % statuses.length];
+            LocalDateTime orderDate = START.plusHours(i / 2);
+            BigDecimal total = BigDecimal.valueOf(10 + (i / 3) * 5L).setScale(2);
+            jdbcTemplate.update("UPDATE orders SET status = ?, order_date = ?, total_price = ? WHERE order_id = ?",
+                    status.name(), orderDate, total, orderId);
+            seeded.add(new Seeded(orderId, status, orderDate, total));
+        }
+    }
+
+    @Test
+    void onlyTheGivenFiltersApply() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setStatus(Order.OrderStatus.SHIPPED);
+        criteria.setFrom(START.plusHours(2));
+        criteria.setTo(START.plusHours(12));
+        criteria.setMinTotal(new BigDecimal("20"));
+        criteria.setUserId(userId);
+
+        List<Long> expected = seeded.stream()
+                .filter(o -> o.status() == Order.OrderStatus.SHIPPED)
+                .filter(o -> !o.orderDate().isBefore(START.plusHours(2)) && o.orderDate().isBefore(START.plusHours(12)))
+                .filter(o -> o.total().compareTo(new BigDecimal("20")) >= 0)
+                .sorted(Comparator.comparing(Seeded::orderDate).thenComparing(Seeded::orderId).reversed())
+                .map(Seeded::orderId)
+                .toList();
+        CursorPage<AdminOrderSummaryDto> page = orderSearchService.search(criteria, OrderSearchSort.DATE_DESC,
+                null, 100);
+        assertEquals(expected, page.getItems().stream().map(AdminOrderSummaryDto::getOrderId).toList());
+        page.getItems().forEach(row -> assertEquals(email, row.getCustomerEmail()));
+    }
+
+    @Test
+    void cursorPagingVisitsEveryMatchOnceInOrder() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setMaxTotal(new BigDecimal("40"));
+        List<Long> expected = seeded.stream()
+                .filter(o -> o.total().compareTo(new BigDecimal("40")) <= 0)
+                .sorted(Comparator.comparing(Seeded::total).thenComparing(Seeded::orderId))
+                .map(Seeded::orderId)
+                .toList();
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            CursorPage<AdminOrderSummaryDto> page = orderSearchService.search(criteria, OrderSearchSort.TOTAL_ASC,
+                    cursor, 4);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            page.getItems().forEach(row -> seen.add(row.getOrderId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void exportWritesEveryMatchAsCsv() throws Exception {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setStatus(Order.OrderStatus.PENDING);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        orderSearchService.exportCsv(criteria, OrderSearchSort.DATE_ASC, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("orderId,orderDate,status,paymentStatus,totalPrice,paymentMethod,shippingMethod,"
+                + "userId,customerName,customerEmail", lines[0]);
+        List<Seeded> pending = seeded.stream().filter(o -> o.status() == Order.OrderStatus.PENDING).toList();
+        assertEquals(pending.size() + 1, lines.length);
+        Seeded first = pending.get(0);
+        assertEquals(first.orderId() + "," + first.orderDate() + ",PENDING,PENDING," + first.total().toPlainString()
+                + ",CARD,STANDARD," + userId + ",Search User," + email, lines[1]);
+    }
+
+    @Test
+    void inconsistentRangesAreRejected() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setMinTotal(BigDecimal.TEN);
+        criteria.setMaxTotal(BigDecimal.ONE);
+        assertThrows(InvalidRequestException.class,
+                () -> orderSearchService.search(criteria, OrderSearchSort.DATE_DESC, null, 10));
+    }
+}
@@ -0,0 +1,153 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.CartDto;
+import com.cliqshop.dto.CartItemDto;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Inventory;
+import com.cliqshop.entity.Product;
+import com.cliqshop.entity.User;
+import com.cliqshop.repository.CategoryRepository;
+import com.cliqshop.repository.InventoryRepository;
+import com.cliqshop.repository.ProductRepository;
+import com.cliqshop.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parallel changes to one cart, as from several tabs: every change must
+ * survive, and concurrent adds of a product must merge into one line. Only
+ * those conflicts are retried; other integrity errors surface at once.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cart-concurrency;DB_CLOSE_DELAY=-1",
+        "cart.max-attempts=50"
+})
+@ActiveProfiles("test")
+class CartConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ADDS_PER_THREAD = 10;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private Long userId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        int run = (int) userRepository.count();
+        userId = userRepository.save(new User("tabs-user-" + run, "Tabs User", "tabs" + run + "@example.com",
+                "555-100-" + run, "password")).getUserId();
+        if (productIds.isEmpty()) {
+            Category category = categoryRepository.save(new Category("Tabs Category " + run, "Description"));
+            for (int p = 0; p < 2; p++) {
+                Product product = productRepository.save(new Product("Tabs Product " + run + "-" + p, "Description",
+                        BigDecimal.valueOf(5 + p), null, category));
+                inventoryRepository.save(new Inventory(product, 1000, 2, LocalDateTime.now(),
+                        "T" + run, "TABS-" + run + "-" + p));
+                productIds.add(product.getProductId());
+            }
+        }
+    }
+
+    @Test
+    void concurrentAddsOfOneProductMergeIntoOneLine() throws Exception {
+        runConcurrently(thread -> cartService.addToCart(userId, productIds.get(0), 1));
+
+        CartDto cart = cartService.getCartByUserId(userId);
+        assertEquals(1, cart.getItems().size());
+        assertEquals(THREADS * ADDS_PER_THREAD, cart.getItems().get(0).getQuantity());
+        assertEquals(0, BigDecimal.valueOf(5L * THREADS * ADDS_PER_THREAD).compareTo(cart.getTotalPrice()));
+    }
+
+    @Test
+    void concurrentAddsOfDifferentProductsKeepEveryIncrement() throws Exception {
+        runConcurrently(thread -> cartService.addToCart(userId, productIds.get(thread % 2), 1));
+
+        CartDto cart = cartService.getCartByUserId(userId);
+        assertEquals(2, cart.getItems().size());
+        int total = 0;
+        BigDecimal sum = BigDecimal.ZERO;
+        for (CartItemDto item : cart.getItems()) {
+            assertEquals(THREADS * ADDS_PER_THREAD / 2, item.getQuantity());
+            total += item.getQuantity();
+            sum = sum.add(item.getSubTotal());
+        }
+        assertEquals(THREADS * ADDS_PER_THREAD, total);
+        assertEquals(0, sum.compareTo(cart.getTotalPrice()));
+    }
+
+    @Test
+    void otherIntegrityViolationsAreNotRetried() {
+        Category category = categoryRepository.save(new Category("Gone Category " + userId, "Description"));
+        Product product = productRepository.save(new Product("Gone Product " + userId, "Description",
+                BigDecimal.ONE, null, category));
+        // Cache the product, then delete it underneath the cache so the cart line breaks its foreign key
+        productService.findById(product.getProductId());
+        jdbcTemplate.update("DELETE FROM products WHERE product_id = ?", product.getProductId());
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> cartService.addToCart(userId, product.getProductId(), 1));
+    }
+
+    private void runConcurrently(ThreadAction action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    action.run(thread);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadAction {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,159 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.CartBatchRequest.CartOperation;
+import com.cliqshop.dto.CartBatchRequest.OperationType;
+import com.cliqshop.dto.CartDto;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Inventory;
+import com.cliqshop.entity.Product;
+import com.cliqshop.entity.User;
+import com.cliqshop.repository.CategoryRepository;
+import com.cliqshop.repository.InventoryRepository;
+import com.cliqshop.repository.ProductRepository;
+import com.cliqshop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Guards the cart operations against extra reads: each one loads the cart,
+ * its lines and their product snapshots with a single query, however many
+ * lines the cart has. Inserts, updates and deletes of the rows the operation
+ * changes are not counted.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cart-queries;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class CartQueryCountTest {
+
+    private static final int CART_LINES = 10;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private Statistics statistics;
+    private Long userId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void seedCart() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        int run = (int) userRepository.count();
+        userId = userRepository.save(new User("cart-user-" + run, "Cart User", "cart" + run + "@example.com",
+                "555-000-" + run, "password")).getUserId();
+        if (productIds.isEmpty()) {
+            Category category = categoryRepository.save(new Category("Cart Category " + run, "Description"));
+            for (int p = 0; p <= CART_LINES; p++) {
+                Product product = productRepository.save(new Product("Cart Product " + run + "-" + p, "Description",
+                        BigDecimal.valueOf(10 + p), null, category));
+                inventoryRepository.save(new Inventory(product, 100, 2, LocalDateTime.now(),
+                        "C" + run, "CART-" + run + "-" + p));
+                productIds.add(product.getProductId());
+            }
+        }
+        for (int p = 0; p < CART_LINES; p++) {
+            cartService.addToCart(userId, productIds.get(p), 1);
+        }
+        // Adds read products through the product cache; warm it for the one they are about to add
+        productService.findById(productIds.get(CART_LINES));
+    }
+
+    @Test
+    void getCartIsOneQuery() {
+        CartDto cart = assertOneQuery(() -> cartService.getCartByUserId(userId));
+        assertEquals(CART_LINES, cart.getItems().size());
+    }
+
+    @Test
+    void addNewLineIsOneQuery() {
+        CartDto cart = assertOneQuery(() -> cartService.addToCart(userId, productIds.get(CART_LINES), 2));
+        assertEquals(CART_LINES + 1, cart.getItems().size());
+    }
+
+    @Test
+    void addToExistingLineIsOneQuery() {
+        productService.findById(productIds.get(0));
+        CartDto cart = assertOneQuery(() -> cartService.addToCart(userId, productIds.get(0), 2));
+        assertEquals(CART_LINES, cart.getItems().size());
+    }
+
+    @Test
+    void updateQuantityIsOneQuery() {
+        CartDto cart = assertOneQuery(() -> cartService.updateCartItemQuantity(userId, productIds.get(1), 5));
+        assertEquals(CART_LINES, cart.getItems().size());
+    }
+
+    @Test
+    void removeLineIsOneQuery() {
+        CartDto cart = assertOneQuery(() -> cartService.removeCartItem(userId, productIds.get(2)));
+        assertEquals(CART_LINES - 1, cart.getItems().size());
+    }
+
+    @Test
+    void batchIsOneQuery() {
+        productService.findById(productIds.get(0));
+        productService.findById(productIds.get(3));
+        List<CartOperation> operations = List.of(
+                new CartOperation(OperationType.ADD, productIds.get(CART_LINES), 3),
+                new CartOperation(OperationType.ADD, productIds.get(0), 1),
+                new CartOperation(OperationType.UPDATE, productIds.get(1), 4),
+                new CartOperation(OperationType.REMOVE, productIds.get(2), 0),
+                new CartOperation(OperationType.REMOVE, productIds.get(CART_LINES), 0),
+                new CartOperation(OperationType.REMOVE, productIds.get(3), 0),
+                new CartOperation(OperationType.ADD, productIds.get(3), 2));
+        CartDto cart = assertOneQuery(() -> cartService.applyBatch(userId, operations));
+        assertEquals(CART_LINES - 1, cart.getItems().size());
+        assertEquals(0, cart.getTotalPrice().compareTo(cart.getItems().stream()
+                .map(item -> item.getSubTotal()).reduce(BigDecimal.ZERO, BigDecimal::add)));
+    }
+
+    @Test
+    void clearCartIsOneQuery() {
+        assertOneQuery(() -> {
+            cartService.clearCart(userId);
+            return null;
+        });
+    }
+
+    private <T> T assertOneQuery(Supplier<T> operation) {
+        statistics.clear();
+        T result = operation.get();
+        long writes = statistics.getEntityInsertCount() + statistics.getEntityUpdateCount()
+                + statistics.getEntityDeleteCount();
+        assertEquals(1, statistics.getPrepareStatementCount() - writes, "queries besides row writes");
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package com.cliqshop.service;
+
+import com.cliqshop.cart.GuestCartCodec;
+import com.cliqshop.dto.CartDto;
+import com.cliqshop.dto.CartItemDto;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Product;
+import com.cliqshop.repository.GuestCartMergeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Merging a guest cart on login: the lines are added to the user's cart
+ * once, a replayed token adds nothing, and merged tokens are forgotten once
+ * they have expired.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:guest-cart-merge;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class GuestCartMergeTest {
+
+    @Autowired
+    private GuestCartService guestCartService;
+
+    @Autowired
+    private GuestCartCodec guestCartCodec;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private GuestCartMergeRepository guestCartMergeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private Long userId;
+    private Product first;
+    private Product second;
+
+    @BeforeEach
+    void seed() {
+        userId = fixtures.customer("Guest User").userId();
+        Category category = fixtures.category();
+        first = fixtures.product(category, BigDecimal.TEN, 100);
+        second = fixtures.product(category, BigDecimal.ONE, 100);
+    }
+
+    @Test
+    void replayedTokenIsMergedOnce() {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(first.getProductId(), 2);
+        lines.put(second.getProductId(), 1);
+        String token = guestCartCodec.encode(lines);
+
+        assertNotNull(guestCartService.mergeInto(userId, token));
+        assertNull(guestCartService.mergeInto(userId, token));
+
+        CartDto cart = cartService.getCartByUserId(userId);
+        assertEquals(2, quantityOf(cart, first));
+        assertEquals(1, quantityOf(cart, second));
+    }
+
+    @Test
+    void eachTokenMergesIntoTheSameCart() {
+        guestCartService.mergeInto(userId, guestCartCodec.encode(Map.of(first.getProductId(), 2)));
+        guestCartService.mergeInto(userId, guestCartCodec.encode(Map.of(first.getProductId(), 3)));
+        assertEquals(5, quantityOf(cartService.getCartByUserId(userId), first));
+    }
+
+    @Test
+    void expiredMergesArePurged() {
+        String token = guestCartCodec.encode(Map.of(first.getProductId(), 1));
+        guestCartService.mergeInto(userId, token);
+        String tokenId = guestCartCodec.read(token).id();
+        assertTrue(guestCartMergeRepository.existsById(tokenId));
+
+        jdbcTemplate.update("UPDATE guest_cart_merges SET expires_at = ? WHERE token_id = ?",
+                LocalDateTime.now().minusMinutes(1), tokenId);
+        assertEquals(1, guestCartService.purge());
+        assertFalse(guestCartMergeRepository.existsById(tokenId));
+    }
+
+    private static int quantityOf(CartDto cart, Product product) {
+        return cart.getItems().stream()
+                .filter(item -> item.getProductId().equals(product.getProductId()))
+                .mapToInt(CartItemDto::getQuantity)
+                .sum();
+    }
+}
@@ -0,0 +1,142 @@
+package com.cliqshop.service;
+
+import com.cliqshop.controller.OrderController;
+import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.ConflictException;
+import com.cliqshop.exception.InvalidRequestException;
+import com.cliqshop.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.cliqshop.service.OrderFixtures.line;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that retrying order placement with the same Idempotency-Key creates
+ * one order, and that a retry the cache can answer touches no tables.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotent-orders;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class IdempotentOrderTest {
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private OrderFixtures.Customer customer;
+    private Product product;
+
+    @BeforeEach
+    void seed() {
+        customer = fixtures.customer("Idem User");
+        product = fixtures.product(fixtures.category(), BigDecimal.TEN, 100);
+    }
+
+    @Test
+    void retryReturnsTheFirstOrderFromMemory() {
+        String key = UUID.randomUUID().toString();
+        long ordersBefore = orderRepository.count();
+
+        ResponseEntity<?> first = place(request(1), key);
+        Long orderId = assertInstanceOf(Order.class, first.getBody()).getOrderId();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ResponseEntity<?> retry = place(request(1), key);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertTrue(((String) retry.getBody()).contains("\"orderId\":" + orderId));
+        assertEquals(ordersBefore + 1, orderRepository.count());
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRefused() {
+        String key = UUID.randomUUID().toString();
+        place(request(1), key);
+        assertThrows(InvalidRequestException.class, () -> place(request(2), key));
+    }
+
+    @Test
+    void failedAttemptCanBeRetriedWithTheSameKey() {
+        String key = UUID.randomUUID().toString();
+        OrderRequest stale = request(1);
+        stale.getItems().get(0).setPrice(BigDecimal.ONE);
+        assertThrows(ConflictException.class, () -> place(stale, key));
+
+        // Nothing was stored for the key, so the corrected request runs
+        ResponseEntity<?> retry = place(request(1), key);
+        assertInstanceOf(Order.class, retry.getBody());
+        assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void concurrentDuplicatesCreateOneOrder() throws Exception {
+        String key = UUID.randomUUID().toString();
+        long ordersBefore = orderRepository.count();
+        int clients = 6;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<?>>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return place(request(1), key);
+            }));
+        }
+        start.countDown();
+        for (Future<ResponseEntity<?>> result : results) {
+            assertTrue(result.get(30, TimeUnit.SECONDS).getStatusCode().is2xxSuccessful());
+        }
+        executor.shutdown();
+        assertEquals(ordersBefore + 1, orderRepository.count());
+    }
+
+    private ResponseEntity<?> place(OrderRequest request, String key) {
+        try {
+            return orderController.placeOrder(request, key).join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private OrderRequest request(int quantity) {
+        return OrderFixtures.request(customer, line(product, quantity));
+    }
+}
@@ -0,0 +1,99 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.entity.Address;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Inventory;
+import com.cliqshop.entity.Product;
+import com.cliqshop.entity.User;
+import com.cliqshop.repository.AddressRepository;
+import com.cliqshop.repository.CategoryRepository;
+import com.cliqshop.repository.InventoryRepository;
+import com.cliqshop.repository.ProductRepository;
+import com.cliqshop.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seeds what an order needs (a customer with an address, a category, stocked
+ * products) and builds order requests at catalog prices. Usernames, emails,
+ * phone numbers, category names and SKUs are unique, so a test can seed again
+ * in every {@code @BeforeEach} without cleaning up. Pull it in with
+ * {@code @Import(OrderFixtures.class)}.
+ */
+@TestComponent
+public class OrderFixtures {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    // A seeded user and the address it bills and ships to
+    public record Customer(Long userId, Long addressId, String name, String email) {
+    }
+
+    public Customer customer(String name) {
+        int n = SEQUENCE.incrementAndGet();
+        User user = userRepository.save(new User("customer-" + n, name, "customer" + n + "@example.com",
+                "555-000-" + n, "password"));
+        Address address = addressRepository.save(new Address(null, user, "1 Main St", null, "Springfield", "IL",
+                "62701", "US", true, Address.AddressType.BOTH));
+        return new Customer(user.getUserId(), address.getAddressId(), name, user.getEmail());
+    }
+
+    public Category category() {
+        return categoryRepository.save(new Category("Category " + SEQUENCE.incrementAndGet(), "Description"));
+    }
+
+    public Product product(Category category, BigDecimal price, int stock) {
+        int n = SEQUENCE.incrementAndGet();
+        Product product = productRepository.save(new Product("Product " + n, "Description", price, null, category));
+        inventoryRepository.save(new Inventory(product, stock, 1, LocalDateTime.now(), "A", "SKU-" + n));
+        return product;
+    }
+
+    public static OrderRequest.OrderItemRequest line(Product product, int quantity) {
+        OrderRequest.OrderItemRequest item = new OrderRequest.OrderItemRequest();
+        item.setProductId(product.getProductId());
+        item.setQuantity(quantity);
+        item.setPrice(product.getPrice());
+        return item;
+    }
+
+    public static OrderRequest request(Customer customer, OrderRequest.OrderItemRequest... lines) {
+        return request(customer, List.of(lines));
+    }
+
+    // Billed and shipped to the customer's address, totalled at the lines' prices
+    public static OrderRequest request(Customer customer, List<OrderRequest.OrderItemRequest> lines) {
+        OrderRequest request = new OrderRequest();
+        request.setUserId(customer.userId());
+        request.setBillingAddressId(customer.addressId());
+        request.setShippingAddressId(customer.addressId());
+        request.setShippingMethod("STANDARD");
+        request.setPaymentMethod("CARD");
+        request.setTotalPrice(lines.stream()
+                .map(line -> line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        request.setItems(lines);
+        return request;
+    }
+}
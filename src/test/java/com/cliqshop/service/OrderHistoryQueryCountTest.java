@@ -0,0 +1,133 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.CursorPage;
+import com.cliqshop.dto.OrderSummaryDto;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.InvalidRequestException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.cliqshop.service.OrderFixtures.line;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Guards the order history against loading whole order graphs: every page is
+ * two statements however many orders and lines it holds, and paging by
+ * cursor visits each order once, newest first, even when order dates tie.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-history;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class OrderHistoryQueryCountTest {
+
+    private static final int ORDERS = 25;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private Statistics statistics;
+    private Long userId;
+    private final List<Long> newestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Category category = fixtures.category();
+        Product first = fixtures.product(category, BigDecimal.TEN, 1000);
+        Product second = fixtures.product(category, BigDecimal.TEN, 1000);
+        placeOrder(fixtures.customer("Other User"), first, second);
+
+        OrderFixtures.Customer customer = fixtures.customer("History User");
+        userId = customer.userId();
+        LocalDateTime date = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<Long> placed = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Long orderId = placeOrder(customer, first, second);
+            // Orders come in pairs sharing a date, so only the order id tells them apart
+            jdbcTemplate.update("UPDATE orders SET order_date = ? WHERE order_id = ?",
+                    date.plusMinutes(i / 2), orderId);
+            placed.add(0, orderId);
+        }
+        newestFirst.clear();
+        newestFirst.addAll(placed);
+    }
+
+    @Test
+    void cursorPagingVisitsEveryOrderOnceNewestFirst() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<OrderSummaryDto> page = orderService.getOrderHistory(userId, cursor, 10);
+            page.getItems().forEach(summary -> {
+                seen.add(summary.getOrderId());
+                assertEquals(2, summary.getItems().size());
+                assertEquals(Order.OrderStatus.PENDING, summary.getStatus());
+            });
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(newestFirst, seen);
+    }
+
+    @Test
+    void eachPageIsTwoStatements() {
+        CursorPage<OrderSummaryDto> first = statementsFor(null, 10, 2);
+        statementsFor(first.getNextCursor(), 10, 2);
+        statementsFor(null, ORDERS, 2);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(InvalidRequestException.class, () -> orderService.getOrderHistory(userId, "not-a-cursor", 10));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<OrderSummaryDto> page = orderService.getOrderHistory(userId, null, ORDERS);
+        assertEquals(ORDERS, page.getSize());
+        assertNull(page.getNextCursor());
+    }
+
+    private CursorPage<OrderSummaryDto> statementsFor(String cursor, int size, long expected) {
+        statistics.clear();
+        CursorPage<OrderSummaryDto> page = orderService.getOrderHistory(userId, cursor, size);
+        assertEquals(expected, statistics.getPrepareStatementCount(), "statements for a page of " + size);
+        return page;
+    }
+
+    private Long placeOrder(OrderFixtures.Customer customer, Product first, Product second) {
+        return orderService.placeOrder(OrderFixtures.request(customer, line(first, 1), line(second, 1))).getOrderId();
+    }
+}
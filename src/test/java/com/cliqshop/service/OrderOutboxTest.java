@@ -0,0 +1,194 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.Product;
+import com.cliqshop.event.OrderChangedEvent;
+import com.cliqshop.repository.OutboxEventRepository;
+import com.cliqshop.websocket.OrderUpdateHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cliqshop.service.OrderFixtures.line;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks that order changes reach listeners and the order topic only once
+ * they commit, at least once, in order from a single relay, and that relays
+ * running side by side skip each other's rows instead of waiting for them.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-outbox;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class OrderOutboxTest {
+
+    @TestConfiguration
+    static class ListenerConfig {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener {
+
+        final List<OrderChangedEvent> received = new CopyOnWriteArrayList<>();
+        final AtomicInteger failuresToThrow = new AtomicInteger();
+
+        @EventListener
+        public void onOrderChanged(OrderChangedEvent event) {
+            if (failuresToThrow.getAndDecrement() > 0) {
+                throw new IllegalStateException("listener unavailable");
+            }
+            received.add(event);
+        }
+    }
+
+    @MockitoSpyBean
+    private OrderUpdateHandler orderUpdateHandler;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private OrderFixtures.Customer customer;
+    private Product product;
+
+    @BeforeEach
+    void seed() {
+        orderOutbox.relay();
+        listener.received.clear();
+        listener.failuresToThrow.set(0);
+        customer = fixtures.customer("Outbox User");
+        product = fixtures.product(fixtures.category(), BigDecimal.TEN, 10);
+    }
+
+    @Test
+    void committedChangesAreRelayedOnceInOrder() {
+        Order order = orderService.placeOrder(request());
+        orderService.markOrderAsPaid(order.getOrderId(), "pi_outbox", null);
+        orderService.updateOrderStatus(order.getOrderId(), Order.OrderStatus.SHIPPED);
+        orderService.updateOrderStatus(order.getOrderId(), Order.OrderStatus.DELIVERED);
+
+        assertEquals(3, orderOutbox.relay());
+        assertEquals(List.of(OrderChangedEvent.Type.PAID, OrderChangedEvent.Type.STATUS_CHANGED,
+                        OrderChangedEvent.Type.STATUS_CHANGED),
+                listener.received.stream().map(OrderChangedEvent::getType).toList());
+        OrderChangedEvent delivered = listener.received.get(2);
+        assertEquals(order.getOrderId(), delivered.getOrderId());
+        assertEquals(customer.userId(), delivered.getUserId());
+        assertEquals(Order.OrderStatus.DELIVERED, delivered.getStatus());
+        assertEquals(Order.PaymentStatus.PAID, delivered.getPaymentStatus());
+        verify(orderUpdateHandler).notifyOrderChanged(argThat(event ->
+                event.getEventId().equals(delivered.getEventId())));
+
+        assertEquals(0, orderOutbox.relay());
+        assertEquals(0L, outboxEventRepository.countPending(10));
+    }
+
+    @Test
+    void rolledBackChangeIsNeverRelayed() {
+        Order order = orderService.placeOrder(request());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            orderService.cancelOrder(order.getOrderId(), customer.userId());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, orderOutbox.relay());
+        assertTrue(listener.received.isEmpty());
+    }
+
+    @Test
+    void failedDeliveryIsRetriedWithoutLaterEventsOvertakingIt() {
+        Order order = orderService.placeOrder(request());
+        orderService.cancelOrder(order.getOrderId(), customer.userId());
+        orderService.updateOrderStatus(order.getOrderId(), Order.OrderStatus.REFUNDED);
+        listener.failuresToThrow.set(1);
+
+        assertEquals(0, orderOutbox.relay());
+        assertEquals(2L, outboxEventRepository.countPending(10));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT MAX(attempts) FROM outbox_events WHERE published_at IS NULL", Integer.class));
+
+        assertEquals(2, orderOutbox.relay());
+        assertEquals(List.of(OrderChangedEvent.Type.CANCELLED, OrderChangedEvent.Type.STATUS_CHANGED),
+                listener.received.stream().map(OrderChangedEvent::getType).toList());
+    }
+
+    @Test
+    void relaySkipsRowsLockedByAnotherRelay() throws Exception {
+        Order order = orderService.placeOrder(request());
+        orderService.cancelOrder(order.getOrderId(), customer.userId());
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> holder = other.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            int rows = outboxEventRepository.lockPending(10, 100).size();
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rows;
+        }));
+        try {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            assertEquals(0, orderOutbox.relay());
+        } finally {
+            release.countDown();
+        }
+        assertEquals(1, holder.get(10, TimeUnit.SECONDS));
+        other.shutdown();
+
+        assertEquals(1, orderOutbox.relay());
+        assertEquals(OrderChangedEvent.Type.CANCELLED, listener.received.get(0).getType());
+    }
+
+    private OrderRequest request() {
+        return OrderFixtures.request(customer, line(product, 1));
+    }
+}
@@ -0,0 +1,112 @@
+package com.cliqshop.service;
+
+import com.cliqshop.controller.OrderController;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.cliqshop.service.OrderFixtures.line;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks that an order is placed off the request thread, that its follow-up
+ * work runs on the pipeline's own stages after commit, and that a full
+ * placement queue is refused rather than queued without bound.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-pipeline;DB_CLOSE_DELAY=-1",
+        "order.confirmation-email.enabled=true",
+        "order.pipeline.placement.threads=1",
+        "order.pipeline.placement.queue-capacity=1"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class OrderPipelineTest {
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private OrderPipeline orderPipeline;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    @Test
+    void orderIsPlacedOnThePipelineAndFollowUpsRunAfterCommit() throws Exception {
+        OrderFixtures.Customer customer = fixtures.customer("Pipeline User");
+        Product product = fixtures.product(fixtures.category(), BigDecimal.TEN, 10);
+
+        Order order = assertInstanceOf(Order.class,
+                orderController.placeOrder(OrderFixtures.request(customer, line(product, 1)), null)
+                        .get(30, TimeUnit.SECONDS).getBody());
+
+        ArgumentCaptor<SimpleMailMessage> mail = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailSender, timeout(5000)).send(mail.capture());
+        assertArrayEquals(new String[] {customer.email()}, mail.getValue().getTo());
+        assertTrue(mail.getValue().getSubject().contains("#" + order.getOrderId()));
+        awaitCompleted("stockEvents");
+        awaitCompleted("notifications");
+    }
+
+    @Test
+    void fullPlacementQueueIsRefused() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = orderPipeline.place(() -> await(release));
+        CompletableFuture<Boolean> queued = orderPipeline.place(() -> await(release));
+        try {
+            assertThrows(ServiceUnavailableException.class, () -> orderPipeline.place(() -> true));
+            assertTrue((Long) stage("placement").get("rejected") >= 1);
+        } finally {
+            release.countDown();
+        }
+        assertTrue(running.get(10, TimeUnit.SECONDS));
+        assertTrue(queued.get(10, TimeUnit.SECONDS));
+    }
+
+    private void awaitCompleted(String stage) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) stage(stage).get("completed") < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1L, stage(stage).get("completed"), stage);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> stage(String name) {
+        return (Map<String, Object>) orderPipeline.getStats().get(name);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
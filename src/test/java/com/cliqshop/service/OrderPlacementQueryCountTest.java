@@ -0,0 +1,144 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.ConflictException;
+import com.cliqshop.repository.OrderRepository;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.cliqshop.service.OrderFixtures.line;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Guards order placement against per-line round trips: placing an order runs
+ * the same number of statements for one line as for forty, with the lines
+ * written in one JDBC batch.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-placement;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class OrderPlacementQueryCountTest {
+
+    private static final int MANY_LINES = 40;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private LoadingCache<Long, Product> productCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private Statistics statistics;
+    private OrderFixtures.Customer customer;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        customer = fixtures.customer("Order User");
+        Category category = fixtures.category();
+        products.clear();
+        for (int p = 0; p < MANY_LINES; p++) {
+            products.add(fixtures.product(category, BigDecimal.valueOf(5 + p), 100));
+        }
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithLines() {
+        long oneLine = statementsToPlace(1);
+        long manyLines = statementsToPlace(MANY_LINES);
+        assertEquals(oneLine, manyLines, "statements for 1 line vs " + MANY_LINES);
+    }
+
+    @Test
+    void linesAreStoredAtTheServerPrice() {
+        Order order = orderService.placeOrder(request(3));
+        assertEquals(3, order.getItems().size());
+        order.getItems().forEach(item -> assertNotNull(item.getOrderItemId()));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_items WHERE order_id = ?", Integer.class, order.getOrderId()));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT SUM(price * quantity) FROM order_items WHERE order_id = ?", BigDecimal.class,
+                order.getOrderId()).compareTo(expectedTotal(3)));
+        assertEquals(0, order.getTotalPrice().compareTo(expectedTotal(3)));
+    }
+
+    @Test
+    void clientTotalMustMatchTheLines() {
+        OrderRequest request = request(2);
+        request.setTotalPrice(BigDecimal.ONE);
+        long ordersBefore = orderRepository.count();
+        assertThrows(ConflictException.class, () -> orderService.placeOrder(request));
+        assertEquals(ordersBefore, orderRepository.count());
+
+        // Without a client total the order is still charged what its lines add up to
+        request.setTotalPrice(null);
+        assertEquals(0, orderService.placeOrder(request).getTotalPrice().compareTo(expectedTotal(2)));
+    }
+
+    @Test
+    void staleClientPriceIsRejected() {
+        OrderRequest request = request(2);
+        request.getItems().get(1).setPrice(BigDecimal.ONE);
+        long ordersBefore = orderRepository.count();
+        assertThrows(ConflictException.class, () -> orderService.placeOrder(request));
+        assertEquals(ordersBefore, orderRepository.count());
+    }
+
+    private long statementsToPlace(int lines) {
+        OrderRequest request = request(lines);
+        // Same cache state for both sizes: every product is a miss, resolved together
+        productCache.invalidateAll();
+        statistics.clear();
+        orderService.placeOrder(request);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private OrderRequest request(int lines) {
+        List<OrderRequest.OrderItemRequest> items = new ArrayList<>();
+        for (int p = 0; p < lines; p++) {
+            items.add(line(products.get(p), 2));
+        }
+        return OrderFixtures.request(customer, items);
+    }
+
+    private BigDecimal expectedTotal(int lines) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int p = 0; p < lines; p++) {
+            total = total.add(products.get(p).getPrice().multiply(BigDecimal.valueOf(2)));
+        }
+        return total;
+    }
+}
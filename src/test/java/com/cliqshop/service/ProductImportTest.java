@@ -0,0 +1,137 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.CatalogFileFormat;
+import com.cliqshop.dto.ProductImportReport;
+import com.cliqshop.event.ProductChangedEvent;
+import com.cliqshop.event.ProductsImportedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports small catalogs in batches of three: rows are written a batch at a
+ * time with one event per batch, a SKU repeated within a batch is rejected
+ * while a later batch updates it, and a batch the database refuses is
+ * replayed row by row so only the offending row fails.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-import;DB_CLOSE_DELAY=-1",
+        "product-import.batch-size=3"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+@RecordApplicationEvents
+class ProductImportTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private Long categoryId;
+    private String prefix;
+
+    @BeforeEach
+    void seed() {
+        categoryId = fixtures.category().getCategoryId();
+        prefix = "IMP-" + RUN.incrementAndGet() + "-";
+    }
+
+    @Test
+    void rowsAreWrittenInBatchesWithOneEventEach() throws IOException {
+        StringBuilder csv = new StringBuilder("sku,name,price,categoryId,quantity\n");
+        for (int i = 1; i <= 7; i++) {
+            csv.append(prefix).append(i).append(",Imported ").append(i).append(",9.99,").append(categoryId)
+                    .append(",").append(i).append('\n');
+        }
+        ProductImportReport report = importCsv(csv.toString());
+
+        assertEquals(7, report.getProcessed());
+        assertEquals(7, report.getCreated());
+        assertEquals(0, report.getFailed());
+        assertEquals(7, stocked());
+        assertEquals(List.of(3, 3, 1), batchSizes());
+        assertEquals(0, events.stream(ProductChangedEvent.class).count());
+    }
+
+    @Test
+    void skuRepeatedInABatchIsRejectedAndInALaterBatchUpdates() throws IOException {
+        ProductImportReport report = importCsv("sku,name,price,categoryId\n"
+                + prefix + "A,First,1.00," + categoryId + "\n"
+                + prefix + "A,Same batch,2.00," + categoryId + "\n"
+                + prefix + "B,Other,3.00," + categoryId + "\n"
+                + prefix + "C,Fills the batch,4.00," + categoryId + "\n"
+                + prefix + "A,Later batch,5.00," + categoryId + "\n");
+
+        assertEquals(5, report.getProcessed());
+        assertEquals(3, report.getCreated());
+        assertEquals(1, report.getUpdated());
+        assertEquals(1, report.getFailed());
+        ProductImportReport.RowError error = report.getErrors().get(0);
+        assertEquals(3, error.getLine());
+        assertEquals("SKU already imported from line 2", error.getMessage());
+        assertEquals(new BigDecimal("5.00"), jdbcTemplate.queryForObject(
+                "SELECT p.price FROM products p JOIN inventory i ON i.product_id = p.product_id WHERE i.sku = ?",
+                BigDecimal.class, prefix + "A"));
+    }
+
+    @Test
+    void failedBatchIsReplayedRowByRow() throws IOException {
+        jdbcTemplate.execute("ALTER TABLE products ADD CONSTRAINT chk_import_test CHECK (name <> 'Refused')");
+        try {
+            ProductImportReport report = importCsv("sku,name,price,categoryId\n"
+                    + prefix + "1,Accepted,1.00," + categoryId + "\n"
+                    + prefix + "2,Refused,1.00," + categoryId + "\n"
+                    + prefix + "3,Accepted too,1.00," + categoryId + "\n");
+
+            assertEquals(2, report.getCreated());
+            assertEquals(1, report.getFailed());
+            assertEquals(prefix + "2", report.getErrors().get(0).getSku());
+            assertTrue(report.getErrors().get(0).getMessage().startsWith("Could not be written"));
+            assertEquals(2, stocked());
+            // Nothing from the rolled back batch, then one per replayed row that committed
+            assertEquals(List.of(1, 1), batchSizes());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE products DROP CONSTRAINT chk_import_test");
+        }
+    }
+
+    private ProductImportReport importCsv(String csv) throws IOException {
+        return productImportService.importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), CatalogFileFormat.CSV);
+    }
+
+    private int stocked() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory WHERE sku LIKE ?", Integer.class,
+                prefix + "%");
+    }
+
+    private List<Integer> batchSizes() {
+        return events.stream(ProductsImportedEvent.class).map(event -> event.getChanges().size()).toList();
+    }
+}
@@ -0,0 +1,182 @@
+package com.cliqshop.service;
+
+import com.cliqshop.dto.OrderRequest;
+import com.cliqshop.entity.Category;
+import com.cliqshop.entity.Order;
+import com.cliqshop.entity.Product;
+import com.cliqshop.exception.ConflictException;
+import com.cliqshop.repository.OrderRepository;
+import com.cliqshop.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.cliqshop.service.OrderFixtures.line;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that placing orders takes stock atomically, that every way out of an
+ * unpaid order returns it exactly once, and that a paid order keeps it.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:stock-reservation;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class StockReservationTest {
+
+    private static final int STOCK = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private OrderFixtures.Customer customer;
+    private Product product;
+    private Product otherProduct;
+
+    @BeforeEach
+    void seed() {
+        customer = fixtures.customer("Stock User");
+        Category category = fixtures.category();
+        product = fixtures.product(category, BigDecimal.TEN, STOCK);
+        otherProduct = fixtures.product(category, BigDecimal.TEN, STOCK);
+    }
+
+    @Test
+    void concurrentOrdersDoNotOversell() throws Exception {
+        int buyers = 12;
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.placeOrder(request(line(product, 1)));
+                    return true;
+                } catch (ConflictException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int placed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                placed++;
+            }
+        }
+        executor.shutdown();
+        assertEquals(STOCK, placed);
+        assertEquals(0, stockOf(product));
+    }
+
+    @Test
+    void shortLineTakesNothing() {
+        long ordersBefore = orderRepository.count();
+        assertThrows(ConflictException.class, () -> orderService.placeOrder(
+                request(line(product, 2), line(otherProduct, STOCK + 1))));
+        assertEquals(STOCK, stockOf(product));
+        assertEquals(STOCK, stockOf(otherProduct));
+        assertEquals(ordersBefore, orderRepository.count());
+    }
+
+    @Test
+    void productWithoutInventoryIsRejectedAsNotStocked() {
+        Product unstocked = productRepository.save(new Product("Unstocked Product " + customer.userId(),
+                "Description", BigDecimal.TEN, null, product.getCategory()));
+        long ordersBefore = orderRepository.count();
+        ConflictException error = assertThrows(ConflictException.class, () -> orderService.placeOrder(
+                request(line(product, 2), line(unstocked, 1))));
+        assertEquals("Product " + unstocked.getProductId() + " is not stocked", error.getMessage());
+        assertEquals(STOCK, stockOf(product));
+        assertEquals(ordersBefore, orderRepository.count());
+
+        error = assertThrows(ConflictException.class, () -> orderService.placeOrder(
+                request(line(otherProduct, STOCK + 1))));
+        assertEquals("Not enough stock for product " + otherProduct.getProductId(), error.getMessage());
+    }
+
+    @Test
+    void cancelReturnsStockOnce() {
+        Order order = orderService.placeOrder(request(line(product, 3), line(product, 1)));
+        assertEquals(STOCK - 4, stockOf(product));
+
+        assertTrue(orderService.cancelOrder(order.getOrderId(), customer.userId()));
+        assertEquals(STOCK, stockOf(product));
+        orderService.updateOrderStatus(order.getOrderId(), Order.OrderStatus.CANCELLED);
+        assertEquals(STOCK, stockOf(product));
+    }
+
+    @Test
+    void failedPaymentReturnsStock() {
+        Order order = orderService.placeOrder(request(line(product, 2)));
+        orderService.markOrderPaymentFailed(order.getOrderId(), "pi_failed");
+        assertEquals(STOCK, stockOf(product));
+    }
+
+    @Test
+    void lapsedUnpaidOrderIsCancelledAndPaidOrderIsNot() {
+        Order unpaid = orderService.placeOrder(request(line(product, 2)));
+        Order paid = orderService.placeOrder(request(line(product, 1)));
+        orderService.markOrderAsPaid(paid.getOrderId(), "pi_paid", null);
+        jdbcTemplate.update("UPDATE orders SET reserved_until = ? WHERE order_id IN (?, ?)",
+                LocalDateTime.now().minusMinutes(1), unpaid.getOrderId(), paid.getOrderId());
+
+        assertEquals(1, stockReservationService.expire());
+        assertEquals(STOCK - 1, stockOf(product));
+        assertEquals(Order.OrderStatus.CANCELLED, orderService.getOrderById(unpaid.getOrderId()).getStatus());
+        assertEquals(Order.OrderStatus.PROCESSING, orderService.getOrderById(paid.getOrderId()).getStatus());
+        assertFalse(orderService.cancelOrder(unpaid.getOrderId(), customer.userId()));
+        assertEquals(STOCK - 1, stockOf(product));
+    }
+
+    @Test
+    void stockUpdateRefusesToGoNegative() {
+        assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.updateStock(product.getProductId(), -(STOCK + 1)));
+        assertEquals(STOCK - 2, inventoryService.updateStock(product.getProductId(), -2).getQuantity());
+    }
+
+    private int stockOf(Product stocked) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM inventory WHERE product_id = ?", Integer.class,
+                stocked.getProductId());
+    }
+
+    private OrderRequest request(OrderRequest.OrderItemRequest... items) {
+        return OrderFixtures.request(customer, items);
+    }
+}
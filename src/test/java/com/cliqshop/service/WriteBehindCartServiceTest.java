@@ -0,0 +1,171 @@
+package com.cliqshop.service;
+
+import com.cliqshop.cart.CartJournal;
+import com.cliqshop.cart.CartState;
+import com.cliqshop.cart.CartStore;
+import com.cliqshop.cart.InMemoryCartStore;
+import com.cliqshop.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Write-behind carts: a change that lands while a flush is writing the cart
+ * is not lost when the flush deletes the journal segments it covered. It
+ * stays journaled and dirty, and the next flush writes it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind-cart;DB_CLOSE_DELAY=-1",
+        "cart.write-behind.enabled=true",
+        "cart.write-behind.flush-interval=1h",
+        "cart.write-behind.fsync=false"
+})
+@ActiveProfiles("test")
+@Import(OrderFixtures.class)
+class WriteBehindCartServiceTest {
+
+    private static final Path JOURNAL_DIR;
+
+    static {
+        try {
+            JOURNAL_DIR = Files.createTempDirectory("cart-journal-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class StoreConfig {
+
+        @Bean
+        @Primary
+        HookedCartStore hookedCartStore() {
+            return new HookedCartStore();
+        }
+    }
+
+    // The default store, plus a hook that runs on every lookup outside the store's lock
+    static class HookedCartStore implements CartStore {
+
+        private final CartStore delegate = new InMemoryCartStore(100);
+        private volatile Consumer<Long> onGet = userId -> { };
+
+        @Override
+        public CartState get(Long userId) {
+            onGet.accept(userId);
+            return delegate.get(userId);
+        }
+
+        @Override
+        public CartState putIfAbsent(CartState state) {
+            return delegate.putIfAbsent(state);
+        }
+
+        @Override
+        public void remove(Long userId) {
+            delegate.remove(userId);
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+    }
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("cart.write-behind.journal-dir", JOURNAL_DIR::toString);
+    }
+
+    @Autowired
+    private WriteBehindCartService cartService;
+
+    @Autowired
+    private HookedCartStore cartStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderFixtures fixtures;
+
+    private Product product;
+
+    @BeforeEach
+    void seed() {
+        product = fixtures.product(fixtures.category(), new BigDecimal("2.50"), 100);
+    }
+
+    @Test
+    void changeDuringAFlushSurvivesTheSegmentDeletion() {
+        Long userId = fixtures.customer("Racing").userId();
+        cartService.addToCart(userId, product.getProductId(), 1);
+
+        // Once the flush has written the cart, another request adds to it before the flush finishes
+        AtomicBoolean raced = new AtomicBoolean();
+        cartStore.onGet = id -> {
+            if (cartRows(userId) > 0 && raced.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(() -> cartService.addToCart(userId, product.getProductId(), 2)).join();
+            }
+        };
+        try {
+            cartService.flushAll();
+        } finally {
+            cartStore.onGet = id -> { };
+        }
+
+        assertTrue(raced.get());
+        assertEquals(1, persistedQuantity(userId));
+        assertTrue(cartStore.get(userId).isDirty());
+        Map<Long, CartState> journaled = replay();
+        assertEquals(3, journaled.get(userId).getLines().get(0).getQuantity());
+
+        cartService.flushAll();
+
+        assertEquals(3, persistedQuantity(userId));
+        assertFalse(cartStore.get(userId).isDirty());
+    }
+
+    private int cartRows(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private int persistedQuantity(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT ci.quantity FROM cart_items ci "
+                + "JOIN carts c ON c.cart_id = ci.cart_id WHERE c.user_id = ?", Integer.class, userId);
+    }
+
+    // What a restart would recover: every segment the flush left behind
+    private Map<Long, CartState> replay() {
+        try (CartJournal reopened = new CartJournal(JOURNAL_DIR, false, objectMapper)) {
+            return reopened.replay();
+        }
+    }
+}